@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only plugin properties backed by the additional_data JSON of a row. Kill Bill often never
+ * looks at the properties of a transaction, so the JSON is only decoded on first access, with a
+ * streaming parser rather than through an intermediate map. {@link #getValue(String)} looks up a
+ * single key without decoding the others.
+ */
+public class AdditionalDataProperties extends AbstractList<PluginProperty> {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdditionalDataProperties.class);
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Nullable private final String additionalData;
+  private final boolean isUpdatable;
+  // Decoding is idempotent, concurrent first accesses may both decode
+  private volatile List<PluginProperty> properties;
+
+  public AdditionalDataProperties(
+      @Nullable final String additionalData, final boolean isUpdatable) {
+    this.additionalData = additionalData;
+    this.isUpdatable = isUpdatable;
+  }
+
+  @Override
+  public PluginProperty get(final int index) {
+    return decode().get(index);
+  }
+
+  @Override
+  public int size() {
+    return decode().size();
+  }
+
+  /** Value of a top level key, null when absent or when the JSON cannot be read. */
+  @Nullable
+  public Object getValue(final String key) {
+    final List<PluginProperty> decoded = properties;
+    if (decoded != null) {
+      for (final PluginProperty property : decoded) {
+        if (key.equals(property.getKey())) {
+          return property.getValue();
+        }
+      }
+      return null;
+    }
+    if (additionalData == null) {
+      return null;
+    }
+    try (JsonParser parser = objectMapper.getFactory().createParser(additionalData)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        parser.nextToken();
+        if (key.equals(name)) {
+          return readValue(parser);
+        }
+        // Nested objects and arrays of other keys are not materialized
+        parser.skipChildren();
+      }
+      return null;
+    } catch (final IOException e) {
+      logger.warn("Unable to read {} from additional data", key, e);
+      return null;
+    }
+  }
+
+  private List<PluginProperty> decode() {
+    List<PluginProperty> decoded = properties;
+    if (decoded == null) {
+      decoded = parse();
+      properties = decoded;
+    }
+    return decoded;
+  }
+
+  private List<PluginProperty> parse() {
+    if (additionalData == null) {
+      return ImmutableList.of();
+    }
+    try (JsonParser parser = objectMapper.getFactory().createParser(additionalData)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return ImmutableList.of();
+      }
+      final ImmutableList.Builder<PluginProperty> builder = ImmutableList.builder();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        parser.nextToken();
+        builder.add(new PluginProperty(name, readValue(parser), isUpdatable));
+      }
+      return builder.build();
+    } catch (final IOException e) {
+      logger.warn("Unable to decode additional data", e);
+      return ImmutableList.of();
+    }
+  }
+
+  @Nullable
+  private static Object readValue(final JsonParser parser) throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NULL:
+        return null;
+      default:
+        // Same types as a Map decoded by the ObjectMapper
+        return parser.readValueAs(Object.class);
+    }
+  }
+}
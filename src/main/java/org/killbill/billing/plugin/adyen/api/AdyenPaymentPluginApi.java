@@ -17,24 +17,34 @@ package org.killbill.billing.plugin.adyen.api;
 
 import static org.killbill.billing.plugin.adyen.core.resources.AdyenCheckoutService.IS_CHECKOUT;
 
-import com.adyen.model.notification.NotificationRequest;
 import com.adyen.model.notification.NotificationRequestItem;
-import com.adyen.notification.NotificationHandler;
-import com.adyen.util.HMACValidator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 import org.joda.time.DateTime;
+import org.jooq.DSLContext;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
 import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
 import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.PaymentMethodPlugin;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
@@ -46,10 +56,14 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.plugin.adyen.api.exceptions.PaymentMethodException;
 import org.killbill.billing.plugin.adyen.client.GatewayProcessor;
-import org.killbill.billing.plugin.adyen.client.GatewayProcessorFactory;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorRegistry;
 import org.killbill.billing.plugin.adyen.core.AdyenActivator;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
 import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+import org.killbill.billing.plugin.adyen.core.NotificationItemReader;
+import org.killbill.billing.plugin.adyen.core.NotificationSignatureValidator;
 import org.killbill.billing.plugin.adyen.dao.AdyenDao;
+import org.killbill.billing.plugin.adyen.dao.NotificationUpdate;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenPaymentMethods;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenPaymentMethodsRecord;
@@ -73,9 +87,11 @@ public class AdyenPaymentPluginApi
   public static final String SESSION_DATA = "sessionData";
   public static final String RECURRING_DATA = "recurring.recurringDetailReference";
   public static final String ENABLE_RECURRING = "enableRecurring";
+  private static final int PAYMENT_INFO_PAGE_SIZE = 100;
   protected static final ObjectMapper objectMapper = new ObjectMapper();
   private final AdyenConfigurationHandler adyenConfigurationHandler;
   private final AdyenDao adyenDao;
+  private final GatewayProcessorRegistry gatewayProcessorRegistry;
 
   public AdyenPaymentPluginApi(
       final AdyenConfigurationHandler adyenConfigPropertiesConfigurationHandler,
@@ -83,9 +99,26 @@ public class AdyenPaymentPluginApi
       final OSGIConfigPropertiesService configProperties,
       final Clock clock,
       final AdyenDao dao) {
+    this(
+        adyenConfigPropertiesConfigurationHandler,
+        killbillAPI,
+        configProperties,
+        clock,
+        dao,
+        new GatewayProcessorRegistry(adyenConfigPropertiesConfigurationHandler));
+  }
+
+  public AdyenPaymentPluginApi(
+      final AdyenConfigurationHandler adyenConfigPropertiesConfigurationHandler,
+      final OSGIKillbillAPI killbillAPI,
+      final OSGIConfigPropertiesService configProperties,
+      final Clock clock,
+      final AdyenDao dao,
+      final GatewayProcessorRegistry gatewayProcessorRegistry) {
     super(killbillAPI, configProperties, clock, dao);
     this.adyenConfigurationHandler = adyenConfigPropertiesConfigurationHandler;
     this.adyenDao = dao;
+    this.gatewayProcessorRegistry = gatewayProcessorRegistry;
   }
 
   @Override
@@ -96,46 +129,45 @@ public class AdyenPaymentPluginApi
       final TenantContext context)
       throws PaymentPluginApiException {
     logger.info("[getPaymentInfo] getPaymentInfo for account {}", kbAccountId);
-    final List<AdyenResponsesRecord> records;
 
-    List<PaymentTransactionInfoPlugin> result = new ArrayList<>();
+    final List<PaymentTransactionInfoPlugin> result = new ArrayList<>();
     try {
-
-      records = this.adyenDao.getSuccessfulPurchaseResponseList(kbPaymentId, context.getTenantId());
-      if (records == null || records.isEmpty()) {
-
-        return new ArrayList<>();
-      }
-      for (AdyenResponsesRecord record : records) {
-        Map<String, String> additionalDataMap =
-            this.getAdditionalDataMap(record.getAdditionalData());
-        List<PluginProperty> pluginProperty = this.mapToPluginPropertyList(additionalDataMap);
-        PaymentTransactionInfoPlugin infoPlugin =
-            new AdyenPaymentTransactionInfoPlugin(
-                record,
-                kbPaymentId,
-                UUID.fromString(record.getKbPaymentTransactionId()),
-                TransactionType.valueOf(record.getTransactionType()),
-                record.getAmount(),
-                record.getCurrency() != null ? Currency.valueOf(record.getCurrency()) : null,
-                PaymentPluginStatus.valueOf(record.getTransactionStatus()),
-                null,
-                null,
-                record.getSessionId(),
-                null,
-                DateTime.parse(record.getCreatedDate().toString()),
-                DateTime.parse(record.getCreatedDate().toString()),
-                pluginProperty);
-        result.add(infoPlugin);
-      }
-
+      // Rows are turned into plugins as they are read, a page at a time
+      this.adyenDao.streamResponses(
+          kbPaymentId,
+          context.getTenantId(),
+          PAYMENT_INFO_PAGE_SIZE,
+          record -> result.add(buildPaymentInfo(kbPaymentId, record)));
     } catch (SQLException e) {
       logger.error("Error trying to access de DB ", e);
+      // No partial history
+      result.clear();
     }
 
     return result;
   }
 
+  private static PaymentTransactionInfoPlugin buildPaymentInfo(
+      final UUID kbPaymentId, final AdyenResponsesRecord record) {
+    final DateTime createdDate = DateTime.parse(record.getCreatedDate().toString());
+    return new AdyenPaymentTransactionInfoPlugin(
+        record,
+        kbPaymentId,
+        UUID.fromString(record.getKbPaymentTransactionId()),
+        TransactionType.valueOf(record.getTransactionType()),
+        record.getAmount(),
+        record.getCurrency() != null ? Currency.valueOf(record.getCurrency()) : null,
+        PaymentPluginStatus.valueOf(record.getTransactionStatus()),
+        null,
+        null,
+        record.getSessionId(),
+        null,
+        createdDate,
+        createdDate,
+        // Decoded only if Kill Bill reads the properties
+        new AdditionalDataProperties(record.getAdditionalData(), true));
+  }
+
   @Override
   protected PaymentTransactionInfoPlugin buildPaymentTransactionInfoPlugin(
       final AdyenResponsesRecord adyenRecord) {
@@ -197,14 +229,12 @@ public class AdyenPaymentPluginApi
     final Map<String, String> mergedProperties =
         PluginProperties.toStringMap(paymentMethodProps.getProperties(), properties);
     boolean recurring;
-    if (this.adyenConfigurationHandler.getConfigurable(context.getTenantId()).getHMACKey() == null
-        || this.adyenConfigurationHandler.getConfigurable(context.getTenantId()).getApiKey() == null
-        || this.adyenConfigurationHandler
-                .getConfigurable(context.getTenantId())
-                .getMerchantAccount()
-            == null
-        || this.adyenConfigurationHandler.getConfigurable(context.getTenantId()).getReturnUrl()
-            == null) {
+    final AdyenConfigProperties adyenConfigProperties =
+        this.adyenConfigurationHandler.getConfigurable(context.getTenantId());
+    if (adyenConfigProperties.getHMACKey() == null
+        || adyenConfigProperties.getApiKey() == null
+        || adyenConfigProperties.getMerchantAccount() == null
+        || adyenConfigProperties.getReturnUrl() == null) {
       throw new PaymentMethodException(
           "Missing one or more configuration properties (HMAC KEY/ Api Key / Merchant Account / Return URL) ");
     }
@@ -310,9 +340,12 @@ public class AdyenPaymentPluginApi
       return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
           TransactionType.PURCHASE, "[purchasePayment]  encountered a database error ");
     }
-    GatewayProcessor gatewayProcessor =
-        GatewayProcessorFactory.get(
-            adyenConfigurationHandler.getConfigurable(context.getTenantId()));
+    if (paymentMethodRecord == null) {
+      logger.error("[purchasePayment]  no active payment method {}", kbPaymentMethodId);
+      return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
+          TransactionType.PURCHASE, "[purchasePayment]  no active payment method");
+    }
+    GatewayProcessor gatewayProcessor = gatewayProcessorRegistry.get(context.getTenantId());
     ProcessorInputDTO input =
         gatewayProcessor.validateData(
             adyenConfigurationHandler, mergedProperties, kbPaymentMethodId, kbAccountId);
@@ -330,27 +363,40 @@ public class AdyenPaymentPluginApi
     if (mergedProperties.get(IS_CHECKOUT) != null
         && mergedProperties.get(IS_CHECKOUT).equals("true")) {
       outputDTO = gatewayProcessor.processPayment(input);
-      formFields.add(
-          new PluginProperty(SESSION_DATA, outputDTO.getAdditionalData().get(SESSION_DATA), false));
     } else {
       input.setRecurringData(paymentMethodRecord.getRecurringDetailReference());
       outputDTO = gatewayProcessor.processOneTimePayment(input);
     }
 
+    if (outputDTO.getStatus() == PaymentPluginStatus.CANCELED) {
+      // Adyen was not called, nothing to record
+      return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
+          TransactionType.PURCHASE, outputDTO.getGatewayError());
+    }
+    if (outputDTO.getAdditionalData() != null
+        && outputDTO.getAdditionalData().containsKey(SESSION_DATA)) {
+      formFields.add(
+          new PluginProperty(SESSION_DATA, outputDTO.getAdditionalData().get(SESSION_DATA), false));
+    }
+
     AdyenResponsesRecord adyenRecord = null;
     try {
-      adyenRecord =
-          this.adyenDao.addResponse(
-              kbAccountId,
-              kbPaymentId,
-              kbTransactionId,
-              TransactionType.PURCHASE,
-              amount,
-              currency,
-              PaymentPluginStatus.PENDING,
-              outputDTO.getFirstPaymentReferenceId(),
-              outputDTO,
-              context.getTenantId());
+      adyenRecord = replayedResponse(outputDTO, kbTransactionId);
+      if (adyenRecord == null) {
+        adyenRecord =
+            this.adyenDao.addResponse(
+                kbAccountId,
+                kbPaymentId,
+                kbTransactionId,
+                kbPaymentMethodId,
+                TransactionType.PURCHASE,
+                amount,
+                currency,
+                PaymentPluginStatus.PENDING,
+                outputDTO.getFirstPaymentReferenceId(),
+                outputDTO,
+                context.getTenantId());
+      }
     } catch (SQLException e) {
       logger.error("[purchasePayment]  encountered a database error ", e);
       return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
@@ -400,9 +446,7 @@ public class AdyenPaymentPluginApi
     }
 
     final Map<String, String> mergedProperties = PluginProperties.toStringMap(properties);
-    GatewayProcessor gatewayProcessor =
-        GatewayProcessorFactory.get(
-            adyenConfigurationHandler.getConfigurable(context.getTenantId()));
+    GatewayProcessor gatewayProcessor = gatewayProcessorRegistry.get(context.getTenantId());
 
     ProcessorInputDTO input =
         gatewayProcessor.validateData(
@@ -413,19 +457,29 @@ public class AdyenPaymentPluginApi
 
     ProcessorOutputDTO outputDTO = gatewayProcessor.voidPayment(input);
 
+    if (outputDTO.getStatus() == PaymentPluginStatus.CANCELED) {
+      // Adyen was not called, nothing to record
+      return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
+          TransactionType.VOID, outputDTO.getGatewayError());
+    }
+
     try {
-      adyenRecord =
-          this.adyenDao.addResponse(
-              kbAccountId,
-              kbPaymentId,
-              kbTransactionId,
-              TransactionType.VOID,
-              null,
-              null,
-              PaymentPluginStatus.PENDING,
-              outputDTO.getFirstPaymentReferenceId(),
-              outputDTO,
-              context.getTenantId());
+      adyenRecord = replayedResponse(outputDTO, kbTransactionId);
+      if (adyenRecord == null) {
+        adyenRecord =
+            this.adyenDao.addResponse(
+                kbAccountId,
+                kbPaymentId,
+                kbTransactionId,
+                kbPaymentMethodId,
+                TransactionType.VOID,
+                null,
+                null,
+                PaymentPluginStatus.PENDING,
+                outputDTO.getFirstPaymentReferenceId(),
+                outputDTO,
+                context.getTenantId());
+      }
     } catch (SQLException e) {
       logger.error("We encountered a database error ", e);
     }
@@ -487,9 +541,7 @@ public class AdyenPaymentPluginApi
     }
 
     final Map<String, String> mergedProperties = PluginProperties.toStringMap(properties);
-    GatewayProcessor gatewayProcessor =
-        GatewayProcessorFactory.get(
-            adyenConfigurationHandler.getConfigurable(context.getTenantId()));
+    GatewayProcessor gatewayProcessor = gatewayProcessorRegistry.get(context.getTenantId());
 
     ProcessorInputDTO input =
         gatewayProcessor.validateData(
@@ -500,19 +552,29 @@ public class AdyenPaymentPluginApi
     input.setCurrency(currency);
     ProcessorOutputDTO outputDTO = gatewayProcessor.refundPayment(input);
 
+    if (outputDTO.getStatus() == PaymentPluginStatus.CANCELED) {
+      // Adyen was not called, nothing to record
+      return AdyenPaymentTransactionInfoPlugin.cancelPaymentTransactionInfoPlugin(
+          TransactionType.REFUND, outputDTO.getGatewayError());
+    }
+
     try {
-      adyenRecord =
-          this.adyenDao.addResponse(
-              kbAccountId,
-              kbPaymentId,
-              kbTransactionId,
-              TransactionType.REFUND,
-              amount,
-              currency,
-              PaymentPluginStatus.PENDING,
-              outputDTO.getFirstPaymentReferenceId(),
-              outputDTO,
-              context.getTenantId());
+      adyenRecord = replayedResponse(outputDTO, kbTransactionId);
+      if (adyenRecord == null) {
+        adyenRecord =
+            this.adyenDao.addResponse(
+                kbAccountId,
+                kbPaymentId,
+                kbTransactionId,
+                kbPaymentMethodId,
+                TransactionType.REFUND,
+                amount,
+                currency,
+                PaymentPluginStatus.PENDING,
+                outputDTO.getFirstPaymentReferenceId(),
+                outputDTO,
+                context.getTenantId());
+      }
     } catch (SQLException e) {
       logger.error("We encountered a database error ", e);
     }
@@ -543,6 +605,19 @@ public class AdyenPaymentPluginApi
     throw new PaymentPluginApiException(INTERNAL, "#buildFormDescriptor not implemented.");
   }
 
+  /**
+   * The response recorded by the earlier attempt of a replayed transaction, null when the output is
+   * not a replay or that attempt has not recorded it yet.
+   */
+  @Nullable
+  private AdyenResponsesRecord replayedResponse(
+      final ProcessorOutputDTO outputDTO, final UUID kbTransactionId) throws SQLException {
+    if (!outputDTO.isReplayed()) {
+      return null;
+    }
+    return this.adyenDao.getResponseFromMerchantReference(kbTransactionId.toString());
+  }
+
   @Override
   public GatewayNotification processNotification(
       final String notification,
@@ -552,68 +627,184 @@ public class AdyenPaymentPluginApi
     logger.info("Notification recieved");
 
     try {
-      HMACValidator hmacValidator = new HMACValidator();
-      NotificationHandler notificationHandler = new NotificationHandler();
-      NotificationRequest notificationRequest =
-          notificationHandler.handleNotificationJson(notification);
+      handleNotification(notification, properties, MoreExecutors.directExecutor());
+    } catch (Exception e) {
+      logger.error("{}", e.getMessage(), e);
+    }
+    return new PluginGatewayNotification("[accepted]");
+  }
+
+  /**
+   * Applies every item of an Adyen notification batch, see {@link #handleNotification(Reader,
+   * Iterable, Executor)}.
+   */
+  public List<NotificationItemOutcome> handleNotification(
+      final String notification,
+      final Iterable<PluginProperty> properties,
+      final Executor executor)
+      throws IOException {
+    return handleNotification(new StringReader(notification), properties, executor);
+  }
 
-      NotificationRequestItem notificationItem = notificationRequest.getNotificationItems().get(0);
+  /**
+   * Applies every item of an Adyen notification batch while it is being read. Each item is handed
+   * to its merchant reference partition as soon as it is parsed: items for the same merchant
+   * reference are applied in order, items for different payments run concurrently on {@code
+   * executor}. The writes are still done once the whole batch has been looked up.
+   *
+   * @return the outcome of each item, in the order of the batch
+   */
+  public List<NotificationItemOutcome> handleNotification(
+      final Reader notification,
+      final Iterable<PluginProperty> properties,
+      final Executor executor)
+      throws IOException {
+    final List<NotificationSlot> slots = new ArrayList<>();
+    final Map<String, NotificationPartition> partitions = new HashMap<>();
+    final List<CompletableFuture<Void>> drains = new ArrayList<>();
+    try {
+      NotificationItemReader.read(
+          notification,
+          item -> {
+            final NotificationSlot slot = new NotificationSlot(item);
+            slots.add(slot);
+            partitions
+                .computeIfAbsent(
+                    String.valueOf(item.getMerchantReference()),
+                    k -> new NotificationPartition(properties))
+                .add(slot, executor, drains);
+          });
+    } finally {
+      // Let the items already handed out finish, even when the rest of the body is malformed
+      CompletableFuture.allOf(drains.toArray(new CompletableFuture[0])).join();
+    }
+    if (slots.isEmpty()) {
+      return Collections.emptyList();
+    }
 
+    // Write the whole batch at once, in the order of the items
+    final List<NotificationUpdate> batch = new ArrayList<>(slots.size());
+    for (final NotificationSlot slot : slots) {
+      if (slot.update != null) {
+        batch.add(slot.update);
+      }
+    }
+    NotificationItemOutcome batchOutcome = NotificationItemOutcome.PROCESSED;
+    try {
+      adyenDao.addNotifications(batch);
+    } catch (Exception e) {
+      logger.error("Unable to store a batch of {} notification items", batch.size(), e);
+      batchOutcome = NotificationItemOutcome.FAILED;
+    }
+    final List<NotificationItemOutcome> outcomes = new ArrayList<>(slots.size());
+    for (final NotificationSlot slot : slots) {
+      outcomes.add(slot.update != null ? batchOutcome : slot.outcome);
+    }
+    return outcomes;
+  }
+
+  /**
+   * Performs the lookups needed by a notification item and stores the resulting writes in {@code
+   * slot}. Returns null when the item is ready to be written.
+   */
+  private NotificationItemOutcome prepareNotificationItem(
+      final DSLContext dslContext,
+      final NotificationSlot slot,
+      final Iterable<PluginProperty> properties) {
+    final NotificationRequestItem notificationItem = slot.item;
+    try {
+      if (adyenDao.isNotificationProcessed(dslContext, notificationItem)) {
+        logger.info(
+            "Notification {} {} already processed, ignored",
+            notificationItem.getPspReference(),
+            notificationItem.getEventCode());
+        return NotificationItemOutcome.DUPLICATE;
+      }
       AdyenResponsesRecord record =
-          adyenDao.getResponseFromMerchantReference(notificationItem.getMerchantReference());
+          adyenDao.getResponseFromMerchantReference(
+              dslContext, notificationItem.getMerchantReference());
+      if (record == null) {
+        logger.warn(
+            "No response found for merchant reference {}, event {} ignored",
+            notificationItem.getMerchantReference(),
+            notificationItem.getEventCode());
+        return NotificationItemOutcome.UNKNOWN_REFERENCE;
+      }
       final CallContext tempContext =
           new PluginCallContext(
               AdyenActivator.PLUGIN_NAME,
               clock.getUTCNow(),
               UUID.fromString(record.getKbAccountId()),
               UUID.fromString(record.getKbTenantId()));
-      if (hmacValidator.validateHMAC(
-          notificationItem,
-          this.adyenConfigurationHandler.getConfigurable(tempContext.getTenantId()).getHMACKey())) {
-
-        Payment payment =
-            this.killbillAPI
-                .getPaymentApi()
-                .getPayment(
-                    UUID.fromString(record.getKbPaymentId()),
-                    false,
-                    false,
-                    properties,
-                    tempContext);
-
-        ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
-        outputDTO.setPspReferenceCode(notificationItem.getPspReference());
-        if (notificationItem.isSuccess()) {
-          outputDTO.setStatus(PaymentPluginStatus.PROCESSED);
-        } else {
-          outputDTO.setStatus(PaymentPluginStatus.ERROR);
-        }
-        this.adyenDao.updateResponse(
-            UUID.fromString(record.getKbPaymentId()),
-            outputDTO,
-            UUID.fromString(record.getKbTenantId()));
-        this.adyenDao.addNotification(
-            UUID.fromString(record.getKbAccountId()),
-            UUID.fromString(record.getKbPaymentId()),
-            UUID.fromString(record.getKbPaymentTransactionId()),
-            notificationItem,
-            UUID.fromString(record.getKbTenantId()));
-
-        if (notificationItem.getAdditionalData().get(RECURRING_DATA) != null) {
-
-          this.adyenDao.updateRecurringDetailsPaymentMethod(
-              payment.getPaymentMethodId(),
-              UUID.fromString(record.getKbTenantId()),
-              notificationItem.getAdditionalData().get(RECURRING_DATA));
-        }
+      final NotificationSignatureValidator signatureValidator =
+          this.adyenConfigurationHandler
+              .getConfigurable(tempContext.getTenantId())
+              .getNotificationSignatureValidator();
+      if (signatureValidator == null) {
+        // Retried by the queue, the configuration may be fixed in the meantime
+        throw new IllegalStateException("Missing or invalid HMAC key");
+      }
+      if (!signatureValidator.isValid(notificationItem)) {
+        logger.error("HMAC Key is not valid");
+        return NotificationItemOutcome.INVALID_HMAC;
+      }
 
+      ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+      outputDTO.setPspReferenceCode(notificationItem.getPspReference());
+      if (notificationItem.isSuccess()) {
+        outputDTO.setStatus(PaymentPluginStatus.PROCESSED);
       } else {
-        logger.error("HMAC Key is not valid");
+        outputDTO.setStatus(PaymentPluginStatus.ERROR);
       }
+      final String recurringDetailReference =
+          notificationItem.getAdditionalData() != null
+              ? notificationItem.getAdditionalData().get(RECURRING_DATA)
+              : null;
+      final UUID kbPaymentMethodId =
+          getKbPaymentMethodId(record, recurringDetailReference, properties, tempContext);
+      slot.update =
+          new NotificationUpdate(
+              UUID.fromString(record.getKbAccountId()),
+              UUID.fromString(record.getKbPaymentId()),
+              UUID.fromString(record.getKbPaymentTransactionId()),
+              UUID.fromString(record.getKbTenantId()),
+              notificationItem,
+              outputDTO,
+              kbPaymentMethodId,
+              recurringDetailReference);
+      return null;
     } catch (Exception e) {
-      logger.error("{}", e.getMessage(), e);
+      logger.error(
+          "Unable to process notification for merchant reference {}",
+          notificationItem.getMerchantReference(),
+          e);
+      return NotificationItemOutcome.FAILED;
     }
-    return new PluginGatewayNotification("[accepted]");
+  }
+
+  /**
+   * The payment method is only needed to store a recurring detail reference. It is stored with the
+   * response, Kill Bill is only asked for responses written before the column existed.
+   */
+  @Nullable
+  private UUID getKbPaymentMethodId(
+      final AdyenResponsesRecord record,
+      @Nullable final String recurringDetailReference,
+      final Iterable<PluginProperty> properties,
+      final CallContext context)
+      throws PaymentApiException {
+    if (record.getKbPaymentMethodId() != null) {
+      return UUID.fromString(record.getKbPaymentMethodId());
+    }
+    if (recurringDetailReference == null) {
+      return null;
+    }
+    final Payment payment =
+        this.killbillAPI
+            .getPaymentApi()
+            .getPayment(
+                UUID.fromString(record.getKbPaymentId()), false, false, properties, context);
+    return payment.getPaymentMethodId();
   }
 
   public Map<String, String> getAdditionalDataMap(String additionalData) {
@@ -661,4 +852,79 @@ public class AdyenPaymentPluginApi
       return null;
     }
   }
+
+  /** A notification item and what its lookups resolved to. */
+  private static final class NotificationSlot {
+
+    private final NotificationRequestItem item;
+    private NotificationItemOutcome outcome;
+    private NotificationUpdate update;
+
+    private NotificationSlot(final NotificationRequestItem item) {
+      this.item = item;
+    }
+  }
+
+  /**
+   * The items of a batch which share a merchant reference. At most one drain runs at a time, it
+   * looks up every item queued so far on one connection and keeps going while the reader hands it
+   * more items, so the items are applied in the order of the batch.
+   */
+  private final class NotificationPartition implements Runnable {
+
+    private final Queue<NotificationSlot> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Iterable<PluginProperty> properties;
+
+    private NotificationPartition(final Iterable<PluginProperty> properties) {
+      this.properties = properties;
+    }
+
+    private void add(
+        final NotificationSlot slot,
+        final Executor executor,
+        final List<CompletableFuture<Void>> drains) {
+      pending.add(slot);
+      if (scheduled.compareAndSet(false, true)) {
+        drains.add(CompletableFuture.runAsync(this, executor));
+      }
+    }
+
+    @Override
+    public void run() {
+      do {
+        drain();
+        scheduled.set(false);
+        // An item queued after the last poll but before the flag was cleared is picked up here
+      } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    private void drain() {
+      final List<NotificationSlot> drained = new ArrayList<>();
+      try {
+        // One connection for all the items of the partition read so far
+        adyenDao.inTransaction(
+            dslContext -> {
+              NotificationSlot slot;
+              while ((slot = pending.poll()) != null) {
+                drained.add(slot);
+                slot.outcome = prepareNotificationItem(dslContext, slot, properties);
+              }
+              return null;
+            });
+      } catch (Exception e) {
+        logger.error("Unable to look up notification items", e);
+        for (final NotificationSlot slot : drained) {
+          if (slot.outcome == null && slot.update == null) {
+            slot.outcome = NotificationItemOutcome.FAILED;
+          }
+        }
+        // Without a connection the remaining items cannot be looked up either
+        NotificationSlot slot;
+        while ((slot = pending.poll()) != null) {
+          slot.outcome = NotificationItemOutcome.FAILED;
+        }
+      }
+    }
+  }
 }
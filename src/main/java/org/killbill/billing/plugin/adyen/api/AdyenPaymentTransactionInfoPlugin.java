@@ -30,9 +30,7 @@ import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
-import org.killbill.billing.plugin.adyen.dao.AdyenDao;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
-import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.payment.PluginPaymentTransactionInfoPlugin;
 
 public class AdyenPaymentTransactionInfoPlugin extends PluginPaymentTransactionInfoPlugin {
@@ -44,9 +42,6 @@ public class AdyenPaymentTransactionInfoPlugin extends PluginPaymentTransactionI
 
   public static AdyenPaymentTransactionInfoPlugin build(
       final AdyenResponsesRecord AdyenResponsesRecord) {
-    final Map<?, ?> additionalData =
-        AdyenDao.mapFromAdditionalDataString(AdyenResponsesRecord.getAdditionalData());
-
     final String firstPaymentReferenceId = AdyenResponsesRecord.getPspReference();
 
     final DateTime responseDate =
@@ -69,7 +64,7 @@ public class AdyenPaymentTransactionInfoPlugin extends PluginPaymentTransactionI
         null,
         responseDate,
         responseDate,
-        PluginProperties.buildPluginProperties(additionalData));
+        new AdditionalDataProperties(AdyenResponsesRecord.getAdditionalData(), false));
   }
 
   public AdyenPaymentTransactionInfoPlugin(
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.api;
+
+/** Result of applying one item of an Adyen notification batch. */
+public enum NotificationItemOutcome {
+  PROCESSED,
+  /** The HMAC signature did not match the tenant key, the item was ignored */
+  INVALID_HMAC,
+  /** No response is stored for the merchant reference, the item was ignored */
+  UNKNOWN_REFERENCE,
+  /** The item is already stored, Adyen delivered it again. It was acked without being applied */
+  DUPLICATE,
+  /** The item could not be applied and should be retried */
+  FAILED
+}
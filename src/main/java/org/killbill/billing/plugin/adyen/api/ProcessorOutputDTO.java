@@ -36,4 +36,22 @@ public class ProcessorOutputDTO {
   private String secondPaymentReferenceId;
   private String pspReferenceCode;
   private DateTime transactionDate;
+  // Shared from an earlier attempt of the same transaction, its response is already recorded
+  private boolean replayed;
+
+  /** A copy flagged as replayed, the cached output itself is shared and never modified. */
+  public ProcessorOutputDTO asReplay() {
+    final ProcessorOutputDTO replay = new ProcessorOutputDTO();
+    replay.setAdditionalData(additionalData);
+    replay.setType(type);
+    replay.setStatus(status);
+    replay.setGatewayError(gatewayError);
+    replay.setGatewayErrorCode(gatewayErrorCode);
+    replay.setFirstPaymentReferenceId(firstPaymentReferenceId);
+    replay.setSecondPaymentReferenceId(secondPaymentReferenceId);
+    replay.setPspReferenceCode(pspReferenceCode);
+    replay.setTransactionDate(transactionDate);
+    replay.setReplayed(true);
+    return replay;
+  }
 }
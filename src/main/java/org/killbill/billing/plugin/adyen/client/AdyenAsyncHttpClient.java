@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import com.adyen.Client;
+import com.adyen.model.ApiError;
+import com.adyen.service.exception.ApiException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+
+/**
+ * Non-blocking Adyen transport. Requests are multiplexed on a few I/O reactor threads, the caller
+ * gets a future completed with the response body, so no thread waits for the round trip.
+ * Connections are kept alive in a pool sized from the tenant configuration, where the SDK default
+ * transport opens a new client, and pays the TCP and TLS handshake, for every request. HTTP/2 is
+ * negotiated through ALPN during the TLS handshake: where Adyen accepts it, concurrent requests
+ * share one multiplexed connection instead of leasing one each, otherwise HTTP/1.1 keep-alive is
+ * used.
+ *
+ * <p>Completion callbacks run on the I/O reactor threads, stages chained on the returned futures
+ * must not block.
+ */
+public class AdyenAsyncHttpClient implements Closeable {
+
+  private static final String API_KEY_HEADER = "x-api-key";
+  private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  private static final String LIBRARY_NAME_HEADER = "adyen-library-name";
+  private static final String LIBRARY_VERSION_HEADER = "adyen-library-version";
+  private static final Gson GSON = new Gson();
+  // Per tenant; a reactor thread multiplexes many connections, the callbacks only parse JSON
+  private static final int IO_THREADS = 2;
+
+  private final String apiKey;
+  private final String userAgent;
+  private final PoolingAsyncClientConnectionManager connectionManager;
+  private final CloseableHttpAsyncClient httpClient;
+
+  public AdyenAsyncHttpClient(
+      final AdyenConfigProperties adyenConfigProperties, final String applicationName) {
+    this.apiKey = adyenConfigProperties.getApiKey();
+    this.userAgent =
+        String.format("%s %s/%s", applicationName, Client.LIB_NAME, Client.LIB_VERSION);
+    this.connectionManager =
+        PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(adyenConfigProperties.getHttpMaxConnections())
+            .setMaxConnPerRoute(adyenConfigProperties.getHttpMaxConnectionsPerRoute())
+            .build();
+    final RequestConfig requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(
+                Timeout.ofMilliseconds(adyenConfigProperties.getHttpConnectTimeoutMs()))
+            .setConnectionRequestTimeout(
+                Timeout.ofMilliseconds(adyenConfigProperties.getHttpConnectTimeoutMs()))
+            .setResponseTimeout(
+                Timeout.ofMilliseconds(adyenConfigProperties.getHttpReadTimeoutMs()))
+            .build();
+    this.httpClient =
+        HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+            .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build())
+            .evictExpiredConnections()
+            .evictIdleConnections(
+                TimeValue.ofSeconds(adyenConfigProperties.getHttpIdleTimeoutSeconds()))
+            .build();
+    this.httpClient.start();
+  }
+
+  /**
+   * Posts a JSON body. The future fails with an {@link ApiException} carrying the status code and
+   * the parsed error on a non 2xx response, and with an {@link IOException} when no response was
+   * received.
+   */
+  public CompletableFuture<String> post(
+      final String endpoint, final String requestBody, @Nullable final String idempotencyKey) {
+    final SimpleRequestBuilder builder =
+        SimpleRequestBuilder.post(endpoint)
+            .setBody(requestBody, ContentType.APPLICATION_JSON)
+            .addHeader("Accept-Charset", StandardCharsets.UTF_8.name())
+            .addHeader("User-Agent", userAgent)
+            .addHeader(LIBRARY_NAME_HEADER, Client.LIB_NAME)
+            .addHeader(LIBRARY_VERSION_HEADER, Client.LIB_VERSION)
+            .addHeader(API_KEY_HEADER, apiKey);
+    if (idempotencyKey != null) {
+      builder.addHeader(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+    }
+    final SimpleHttpRequest request = builder.build();
+
+    final CompletableFuture<String> result = new CompletableFuture<>();
+    httpClient.execute(
+        request,
+        new FutureCallback<SimpleHttpResponse>() {
+          @Override
+          public void completed(final SimpleHttpResponse response) {
+            final int statusCode = response.getCode();
+            final String responseBody = response.getBodyText();
+            if (statusCode < 200 || statusCode >= 300) {
+              final ApiException exception =
+                  new ApiException("HTTP Exception " + responseBody, statusCode);
+              exception.setError(parseError(responseBody));
+              result.completeExceptionally(exception);
+            } else {
+              result.complete(responseBody);
+            }
+          }
+
+          @Override
+          public void failed(final Exception e) {
+            result.completeExceptionally(e instanceof IOException ? e : new IOException(e));
+          }
+
+          @Override
+          public void cancelled() {
+            result.completeExceptionally(new IOException("Adyen request cancelled " + endpoint));
+          }
+        });
+    return result;
+  }
+
+  public Map<String, Object> getMetrics() {
+    final PoolStats stats = connectionManager.getTotalStats();
+    final Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("http.pool.leased", stats.getLeased());
+    metrics.put("http.pool.available", stats.getAvailable());
+    metrics.put("http.pool.pending", stats.getPending());
+    metrics.put("http.pool.max", stats.getMax());
+    metrics.put(
+        "http.pool.utilization",
+        stats.getMax() == 0 ? 0d : (double) stats.getLeased() / stats.getMax());
+    return metrics;
+  }
+
+  /** The error Adyen describes in the body, null when the body is not one (e.g. from a proxy). */
+  @Nullable
+  private static ApiError parseError(@Nullable final String responseBody) {
+    if (responseBody == null || responseBody.isEmpty()) {
+      return null;
+    }
+    try {
+      return GSON.fromJson(responseBody, ApiError.class);
+    } catch (final JsonParseException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void close() {
+    // Pending futures are failed through cancelled()
+    httpClient.close(CloseMode.GRACEFUL);
+  }
+}
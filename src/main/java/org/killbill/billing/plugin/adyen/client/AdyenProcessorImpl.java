@@ -16,17 +16,28 @@
 package org.killbill.billing.plugin.adyen.client;
 
 import com.adyen.model.checkout.CreateCheckoutSessionResponse;
-import com.adyen.model.checkout.PaymentRefundResource;
-import com.adyen.model.checkout.PaymentReversalResource;
 import com.adyen.model.checkout.PaymentsResponse;
 import com.adyen.service.exception.ApiException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.joda.time.LocalDate;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.plugin.adyen.api.ProcessorInputDTO;
 import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.client.exceptions.GatewayUnavailableException;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
 import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
 import org.killbill.billing.plugin.api.PluginTenantContext;
 import org.killbill.billing.util.callcontext.TenantContext;
@@ -37,100 +48,108 @@ public class AdyenProcessorImpl implements GatewayProcessor {
   private static final Logger logger = LoggerFactory.getLogger(AdyenProcessorImpl.class);
 
   private final AdyenSDKClientImpl httpClient;
+  // One circuit breaker and bulkhead per endpoint, a slow endpoint does not block the others
+  private final EndpointGuard paymentsGuard;
+  private final EndpointGuard sessionsGuard;
+  private final EndpointGuard refundsGuard;
+  private final EndpointGuard reversalsGuard;
 
+  // Completed (or in flight) outputs by idempotency key, null when disabled
+  @Nullable private final Cache<String, CompletableFuture<ProcessorOutputDTO>> outputs;
+  private final AtomicLong replayedCount = new AtomicLong();
+
+  private static final long OUTPUT_CACHE_MAX_SIZE = 10000;
   private static final String MERCHANT_ACCOUNT = "merchantAccount";
   private static final String API_KEY = "apiKey";
 
-  public AdyenProcessorImpl(AdyenSDKClientImpl httpClient) {
+  public AdyenProcessorImpl(
+      AdyenSDKClientImpl httpClient, AdyenConfigProperties adyenConfigProperties) {
     this.httpClient = httpClient;
+    this.paymentsGuard = new EndpointGuard(AdyenSDKClientImpl.PAYMENTS, adyenConfigProperties);
+    this.sessionsGuard = new EndpointGuard(AdyenSDKClientImpl.SESSIONS, adyenConfigProperties);
+    this.refundsGuard = new EndpointGuard(AdyenSDKClientImpl.REFUNDS, adyenConfigProperties);
+    this.reversalsGuard = new EndpointGuard(AdyenSDKClientImpl.REVERSALS, adyenConfigProperties);
+    if (adyenConfigProperties.getIdempotencyCacheTtlSeconds() > 0) {
+      this.outputs =
+          CacheBuilder.newBuilder()
+              .expireAfterWrite(
+                  adyenConfigProperties.getIdempotencyCacheTtlSeconds(), TimeUnit.SECONDS)
+              .maximumSize(OUTPUT_CACHE_MAX_SIZE)
+              .build();
+    } else {
+      this.outputs = null;
+    }
   }
 
   @Override
-  public ProcessorOutputDTO processOneTimePayment(ProcessorInputDTO input) {
-    PaymentsResponse response = null;
-    try {
-      response =
-          httpClient.purchase(
-              input.getCurrency(),
-              input.getAmount(),
-              input.getKbTransactionId(),
-              input.getKbAccountId(),
-              input.getRecurringData());
-    } catch (IOException e) {
-      logger.error("IO Exception{}", e.getMessage(), e);
-      e.printStackTrace();
-    } catch (ApiException e) {
-
-      logger.error("API Exception {} \n {}", e.getError(), e.getMessage(), e);
-      e.printStackTrace();
-    }
-    ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
-    if (response != null) {
-      outputDTO.setFirstPaymentReferenceId(response.getPspReference());
-      outputDTO.setAdditionalData(response.getAdditionalData());
-    }
-
-    return outputDTO;
+  public CompletableFuture<ProcessorOutputDTO> processOneTimePaymentAsync(ProcessorInputDTO input) {
+    return replayable(
+        paymentsGuard,
+        input.getKbTransactionId(),
+        () ->
+            toOutput(
+                paymentsGuard.call(
+                    () ->
+                        httpClient.purchaseAsync(
+                            input.getCurrency(),
+                            input.getAmount(),
+                            input.getKbTransactionId(),
+                            input.getKbAccountId(),
+                            input.getRecurringData())),
+                (PaymentsResponse response) -> {
+                  ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+                  outputDTO.setFirstPaymentReferenceId(response.getPspReference());
+                  outputDTO.setAdditionalData(response.getAdditionalData());
+                  return outputDTO;
+                }));
   }
 
   @Override
-  public ProcessorOutputDTO processPayment(ProcessorInputDTO input) {
-    CreateCheckoutSessionResponse response = null;
+  public CompletableFuture<ProcessorOutputDTO> processPaymentAsync(ProcessorInputDTO input) {
     boolean recurring = input.getPaymentMethod().toString().equals("RECURRING");
-    try {
-      response =
-          httpClient.checkoutsessions(
-              input.getCurrency(),
-              input.getAmount(),
-              input.getKbTransactionId(),
-              input.getKbAccountId(),
-              recurring);
-    } catch (IOException e) {
-      logger.error("IO Exception{}", e.getMessage(), e);
-      e.printStackTrace();
-    } catch (ApiException e) {
-
-      logger.error("API Exception {} \n {}", e.getError(), e.getMessage(), e);
-      e.printStackTrace();
-    }
-
-    ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
-    if (response != null) {
-      outputDTO.setFirstPaymentReferenceId(response.getId());
-      outputDTO.setSecondPaymentReferenceId(response.getMerchantOrderReference());
-      Map<String, String> additionalData = new HashMap<>();
-      additionalData.put("sessionData", response.getSessionData());
-      outputDTO.setAdditionalData(additionalData);
-    }
-
-    return outputDTO;
+    return replayable(
+        sessionsGuard,
+        input.getKbTransactionId(),
+        () ->
+            toOutput(
+                sessionsGuard.call(
+                    () ->
+                        httpClient.checkoutsessionsAsync(
+                            input.getCurrency(),
+                            input.getAmount(),
+                            input.getKbTransactionId(),
+                            input.getKbAccountId(),
+                            recurring)),
+                (CreateCheckoutSessionResponse response) -> {
+                  ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+                  outputDTO.setFirstPaymentReferenceId(response.getId());
+                  outputDTO.setSecondPaymentReferenceId(response.getMerchantOrderReference());
+                  Map<String, String> additionalData = new HashMap<>();
+                  additionalData.put("sessionData", response.getSessionData());
+                  outputDTO.setAdditionalData(additionalData);
+                  return outputDTO;
+                }));
   }
 
   @Override
-  public ProcessorOutputDTO refundPayment(ProcessorInputDTO input) {
-    PaymentRefundResource response = null;
-    try {
-      response =
-          httpClient.refund(
-              input.getCurrency(),
-              input.getAmount(),
-              input.getKbTransactionId(),
-              input.getPspReference());
-    } catch (IOException e) {
-      logger.error("IO Exception{}", e.getMessage(), e);
-      e.printStackTrace();
-    } catch (ApiException e) {
-
-      logger.error("API Exception {} \n {}", e.getError(), e.getMessage(), e);
-      e.printStackTrace();
-    }
-
-    ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
-    if (response != null) {
-      outputDTO.setFirstPaymentReferenceId(response.getPspReference());
-    }
-
-    return outputDTO;
+  public CompletableFuture<ProcessorOutputDTO> refundPaymentAsync(ProcessorInputDTO input) {
+    return replayable(
+        refundsGuard,
+        input.getKbTransactionId(),
+        () ->
+            toOutput(
+                refundsGuard.call(
+                    () ->
+                        httpClient.refundAsync(
+                            input.getCurrency(),
+                            input.getAmount(),
+                            input.getKbTransactionId(),
+                            input.getPspReference())),
+                response -> {
+                  ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+                  outputDTO.setFirstPaymentReferenceId(response.getPspReference());
+                  return outputDTO;
+                }));
   }
 
   @Override
@@ -145,13 +164,14 @@ public class AdyenProcessorImpl implements GatewayProcessor {
     inputDTO.setPluginProperties(properties);
     // Read Configuration From Kill Bill
     Map<String, String> configurations = new HashMap<>();
-    if (AdyenConfigurationHandler.getConfigurable(context).getApiKey() == null
-        || AdyenConfigurationHandler.getConfigurable(context).getMerchantAccount() == null) {
+    final AdyenConfigProperties adyenConfigProperties =
+        AdyenConfigurationHandler.getConfigurable(context);
+    if (adyenConfigProperties.getApiKey() == null
+        || adyenConfigProperties.getMerchantAccount() == null) {
       return null;
     }
-    configurations.put(
-        MERCHANT_ACCOUNT, AdyenConfigurationHandler.getConfigurable(context).getMerchantAccount());
-    configurations.put(API_KEY, AdyenConfigurationHandler.getConfigurable(context).getApiKey());
+    configurations.put(MERCHANT_ACCOUNT, adyenConfigProperties.getMerchantAccount());
+    configurations.put(API_KEY, adyenConfigProperties.getApiKey());
     inputDTO.setPluginConfiguration(configurations);
     TenantContext tenantContext = new PluginTenantContext(kbAccountId, context);
     String localdate = LocalDate.now().toString("yyyyMMdd");
@@ -162,24 +182,185 @@ public class AdyenProcessorImpl implements GatewayProcessor {
   }
 
   @Override
-  public ProcessorOutputDTO voidPayment(ProcessorInputDTO input) {
-    PaymentReversalResource response = null;
-    try {
-      response = httpClient.reversal(input.getKbTransactionId(), input.getPspReference());
-    } catch (IOException e) {
-      logger.error("IO Exception{}", e.getMessage(), e);
-      e.printStackTrace();
-    } catch (ApiException e) {
-
-      logger.error("API Exception {} \n {}", e.getError(), e.getMessage(), e);
-      e.printStackTrace();
+  public CompletableFuture<ProcessorOutputDTO> voidPaymentAsync(ProcessorInputDTO input) {
+    return replayable(
+        reversalsGuard,
+        input.getKbTransactionId(),
+        () ->
+            toOutput(
+                reversalsGuard.call(
+                    () ->
+                        httpClient.reversalAsync(
+                            input.getKbTransactionId(), input.getPspReference())),
+                response -> {
+                  ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+                  outputDTO.setFirstPaymentReferenceId(response.getPspReference());
+                  return outputDTO;
+                }));
+  }
+
+  @Override
+  public Map<String, Object> getMetrics() {
+    final Map<String, Object> metrics = new LinkedHashMap<>(httpClient.getMetrics());
+    for (final EndpointGuard guard :
+        new EndpointGuard[] {paymentsGuard, sessionsGuard, refundsGuard, reversalsGuard}) {
+      guard.circuitBreaker.addMetrics(metrics);
+      guard.bulkhead.addMetrics(metrics);
+    }
+    if (outputs != null) {
+      metrics.put("idempotencyCache.size", outputs.size());
+      metrics.put("idempotencyCache.replayed", replayedCount.get());
+    }
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    httpClient.close();
+  }
+
+  /**
+   * A transaction replayed by Kill Bill (same kbTransactionId) shares the output of the first
+   * attempt while it is cached, concurrent replays wait for the same Adyen call. Outputs without a
+   * PSP reference (errors, rejected calls) are not kept so the next attempt reaches Adyen, with the
+   * same idempotency key. A replayed output is flagged so that its response is not recorded twice.
+   */
+  private CompletableFuture<ProcessorOutputDTO> replayable(
+      final EndpointGuard guard,
+      @Nullable final String kbTransactionId,
+      final Supplier<CompletableFuture<ProcessorOutputDTO>> call) {
+    if (outputs == null || kbTransactionId == null) {
+      return call.get();
+    }
+    final String key = AdyenSDKClientImpl.idempotencyKey(guard.name, kbTransactionId);
+    final CompletableFuture<ProcessorOutputDTO> created = new CompletableFuture<>();
+    final CompletableFuture<ProcessorOutputDTO> existing =
+        outputs.asMap().putIfAbsent(key, created);
+    if (existing != null) {
+      replayedCount.incrementAndGet();
+      return existing.thenApply(ProcessorOutputDTO::asReplay);
     }
+    call.get()
+        .whenComplete(
+            (output, error) -> {
+              if (error != null || output.getFirstPaymentReferenceId() == null) {
+                outputs.asMap().remove(key, created);
+              }
+              if (error != null) {
+                created.completeExceptionally(error);
+              } else {
+                created.complete(output);
+              }
+            });
+    return created;
+  }
+
+  /**
+   * Maps the Adyen response, a failed call yields an empty output (a CANCELED one when Adyen was
+   * not called) so that the future never completes exceptionally.
+   */
+  private static <T> CompletableFuture<ProcessorOutputDTO> toOutput(
+      final CompletableFuture<T> response, final Function<T, ProcessorOutputDTO> mapper) {
+    return response.handle(
+        (result, error) -> {
+          if (error == null) {
+            return result == null ? new ProcessorOutputDTO() : mapper.apply(result);
+          }
+          final Throwable cause = unwrap(error);
+          if (cause instanceof GatewayUnavailableException) {
+            return unavailable((GatewayUnavailableException) cause);
+          } else if (cause instanceof ApiException) {
+            final ApiException e = (ApiException) cause;
+            logger.error("API Exception {} \n {}", e.getError(), e.getMessage(), e);
+          } else if (cause instanceof IOException) {
+            logger.error("IO Exception{}", cause.getMessage(), cause);
+          } else {
+            logger.error("Unexpected error calling Adyen", cause);
+          }
+          return new ProcessorOutputDTO();
+        });
+  }
 
-    ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
-    if (response != null) {
-      outputDTO.setFirstPaymentReferenceId(response.getPspReference());
+  private static Throwable unwrap(final Throwable error) {
+    Throwable cause = error;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
     }
+    return cause;
+  }
 
+  private static <T> CompletableFuture<T> failed(final Throwable error) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(error);
+    return future;
+  }
+
+  /** Nothing was sent to Adyen, Kill Bill can retry the transaction. */
+  private static ProcessorOutputDTO unavailable(final GatewayUnavailableException e) {
+    logger.warn("Adyen call not attempted: {}", e.getMessage());
+    final ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+    outputDTO.setStatus(PaymentPluginStatus.CANCELED);
+    outputDTO.setGatewayError(e.getMessage());
     return outputDTO;
   }
+
+  private static final class EndpointGuard {
+
+    private final String name;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final GatewayBulkhead bulkhead;
+
+    private EndpointGuard(final String name, final AdyenConfigProperties adyenConfigProperties) {
+      this.name = name;
+      this.circuitBreaker =
+          new GatewayCircuitBreaker(
+              name,
+              adyenConfigProperties.getCircuitBreakerFailureThreshold(),
+              adyenConfigProperties.getCircuitBreakerOpenSeconds() * 1000L);
+      this.bulkhead =
+          new GatewayBulkhead(name, adyenConfigProperties.getBulkheadMaxConcurrentCalls());
+    }
+
+    /** The bulkhead permit is held until the response arrives, not while the caller waits. */
+    private <T> CompletableFuture<T> call(final Supplier<CompletableFuture<T>> call) {
+      if (!bulkhead.tryAcquire()) {
+        return failed(
+            new GatewayUnavailableException("Too many concurrent Adyen " + name + " calls"));
+      }
+      if (!circuitBreaker.tryAcquirePermission()) {
+        bulkhead.release();
+        return failed(
+            new GatewayUnavailableException("Adyen " + name + " circuit breaker is open"));
+      }
+      final CompletableFuture<T> response;
+      try {
+        response = call.get();
+      } catch (final RuntimeException e) {
+        circuitBreaker.onFailure();
+        bulkhead.release();
+        return failed(e);
+      }
+      return response.whenComplete(
+          (result, error) -> {
+            try {
+              if (error == null || !isGatewayFailure(unwrap(error))) {
+                circuitBreaker.onSuccess();
+              } else {
+                circuitBreaker.onFailure();
+              }
+            } finally {
+              bulkhead.release();
+            }
+          });
+    }
+
+    private static boolean isGatewayFailure(final Throwable cause) {
+      if (cause instanceof ApiException) {
+        // Refusals and validation errors mean Adyen is up
+        final int statusCode = ((ApiException) cause).getStatusCode();
+        return statusCode == 429 || statusCode >= 500 || statusCode <= 0;
+      }
+      return true;
+    }
+  }
 }
@@ -19,33 +19,29 @@ import com.adyen.model.checkout.CreateCheckoutSessionResponse;
 import com.adyen.model.checkout.PaymentRefundResource;
 import com.adyen.model.checkout.PaymentReversalResource;
 import com.adyen.model.checkout.PaymentsResponse;
-import com.adyen.service.exception.ApiException;
-import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 import org.killbill.billing.catalog.api.Currency;
 
 public interface AdyenSDKClient {
 
-  public CreateCheckoutSessionResponse checkoutsessions(
+  public CompletableFuture<CreateCheckoutSessionResponse> checkoutsessionsAsync(
       Currency currency,
       BigDecimal kbAmount,
       String transactionId,
       String kbAccountId,
-      boolean isRecurring)
-      throws IOException, ApiException;
+      boolean isRecurring);
 
-  public PaymentReversalResource reversal(String transactionId, String paymentPspReference)
-      throws IOException, ApiException;
+  public CompletableFuture<PaymentReversalResource> reversalAsync(
+      String transactionId, String paymentPspReference);
 
-  public PaymentRefundResource refund(
-      Currency currency, BigDecimal kbAmount, String transactionId, String paymentPspReference)
-      throws IOException, ApiException;
+  public CompletableFuture<PaymentRefundResource> refundAsync(
+      Currency currency, BigDecimal kbAmount, String transactionId, String paymentPspReference);
 
-  public PaymentsResponse purchase(
+  public CompletableFuture<PaymentsResponse> purchaseAsync(
       Currency currency,
       BigDecimal kbAmount,
       String transactionId,
       String kbAccountId,
-      String recurringDetailReference)
-      throws IOException, ApiException;
+      String recurringDetailReference);
 }
@@ -16,11 +16,8 @@
 package org.killbill.billing.plugin.adyen.client;
 
 import com.adyen.Client;
-import com.adyen.enums.Environment;
 import com.adyen.model.Amount;
 import com.adyen.model.checkout.CreateCheckoutSessionRequest;
-import com.adyen.model.checkout.CreateCheckoutSessionRequest.RecurringProcessingModelEnum;
-import com.adyen.model.checkout.CreateCheckoutSessionRequest.ShopperInteractionEnum;
 import com.adyen.model.checkout.CreateCheckoutSessionResponse;
 import com.adyen.model.checkout.CreatePaymentRefundRequest;
 import com.adyen.model.checkout.CreatePaymentReversalRequest;
@@ -28,111 +25,180 @@ import com.adyen.model.checkout.PaymentRefundResource;
 import com.adyen.model.checkout.PaymentReversalResource;
 import com.adyen.model.checkout.PaymentsRequest;
 import com.adyen.model.checkout.PaymentsResponse;
-import com.adyen.service.Checkout;
-import com.adyen.service.exception.ApiException;
+import com.google.gson.Gson;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
 
 public class AdyenSDKClientImpl implements AdyenSDKClient {
 
-  private final AdyenConfigProperties adyenConfigProperties;
-  private final Checkout checkout;
+  // PaymentsRequest and PaymentsResponse predate the generated models and have no toJson/fromJson,
+  // the SDK serializes them with a plain Gson as well
+  private static final Gson GSON = new Gson();
+
+  public static final String PAYMENTS = "payments";
+  public static final String SESSIONS = "sessions";
+  public static final String REFUNDS = "refunds";
+  public static final String REVERSALS = "reversals";
+
+  private final MerchantRequestTemplate requestTemplate;
+  private final AdyenAsyncHttpClient asyncHttpClient;
+  private final String checkoutEndpoint;
 
   public AdyenSDKClientImpl(AdyenConfigProperties adyenConfigProperties) {
-    this.adyenConfigProperties = adyenConfigProperties;
+    this.requestTemplate = new MerchantRequestTemplate(adyenConfigProperties);
+    // Only resolves the endpoints of the environment, every request goes through asyncHttpClient
     Client client =
-        new Client(
-            adyenConfigProperties.getApiKey(),
-            Environment.valueOf(adyenConfigProperties.getEnviroment()));
-    this.checkout = new Checkout(client);
+        new Client(adyenConfigProperties.getApiKey(), adyenConfigProperties.getEnvironment());
+    if (adyenConfigProperties.getCheckoutEndpoint() != null) {
+      client.getConfig().setCheckoutEndpoint(adyenConfigProperties.getCheckoutEndpoint());
+    }
+    this.checkoutEndpoint =
+        client.getConfig().getCheckoutEndpoint() + "/" + Client.CHECKOUT_API_VERSION;
+    this.asyncHttpClient =
+        new AdyenAsyncHttpClient(adyenConfigProperties, client.getConfig().getApplicationName());
+  }
+
+  public Map<String, Object> getMetrics() {
+    return asyncHttpClient.getMetrics();
+  }
+
+  public void close() {
+    asyncHttpClient.close();
   }
 
   @Override
-  public CreateCheckoutSessionResponse checkoutsessions(
+  public CompletableFuture<CreateCheckoutSessionResponse> checkoutsessionsAsync(
       Currency currency,
       BigDecimal kbAmount,
       String kbTransactionId,
       String kbAccountId,
-      boolean isRecurrent)
-      throws IOException, ApiException {
+      boolean isRecurrent) {
+    final CreateCheckoutSessionRequest checkoutSession =
+        buildCheckoutSessionRequest(currency, kbAmount, kbTransactionId, kbAccountId, isRecurrent);
+    return post(
+        "/sessions",
+        checkoutSession.toJson(),
+        idempotencyKey(SESSIONS, kbTransactionId),
+        CreateCheckoutSessionResponse::fromJson);
+  }
 
-    Amount amount = new Amount().currency(currency.name()).value(convertToMinorUnit(kbAmount));
-    CreateCheckoutSessionRequest checkoutSession = new CreateCheckoutSessionRequest();
-    checkoutSession.merchantAccount(adyenConfigProperties.getMerchantAccount());
-    checkoutSession.setChannel(CreateCheckoutSessionRequest.ChannelEnum.WEB);
-    checkoutSession.setReference(kbTransactionId);
-    checkoutSession.setReturnUrl(adyenConfigProperties.getReturnUrl());
-    checkoutSession.setAmount(amount);
-    checkoutSession.setCountryCode(adyenConfigProperties.getRegion());
-    checkoutSession.setCaptureDelayHours(
-        Integer.valueOf(adyenConfigProperties.getCaptureDelayHours()));
-    checkoutSession.setShopperReference(kbAccountId);
-    if (isRecurrent) {
-      checkoutSession.setRecurringProcessingModel(RecurringProcessingModelEnum.CARDONFILE);
-      checkoutSession.shopperInteraction(ShopperInteractionEnum.ECOMMERCE);
-      checkoutSession.storePaymentMethod(true);
-    }
+  @Override
+  public CompletableFuture<PaymentReversalResource> reversalAsync(
+      String transactionId, String paymentPspReference) {
+    return post(
+        "/payments/" + paymentPspReference + "/reversals",
+        buildReversalRequest(transactionId).toJson(),
+        idempotencyKey(REVERSALS, transactionId),
+        PaymentReversalResource::fromJson);
+  }
 
-    return checkout.sessions(checkoutSession);
+  @Override
+  public CompletableFuture<PaymentRefundResource> refundAsync(
+      Currency currency, BigDecimal kbAmount, String transactionId, String paymentPspReference) {
+    return post(
+        "/payments/" + paymentPspReference + "/refunds",
+        buildRefundRequest(currency, kbAmount, transactionId).toJson(),
+        idempotencyKey(REFUNDS, transactionId),
+        PaymentRefundResource::fromJson);
   }
 
   @Override
-  public PaymentReversalResource reversal(String transactionId, String paymentPspReference)
-      throws IOException, ApiException {
+  public CompletableFuture<PaymentsResponse> purchaseAsync(
+      Currency currency,
+      BigDecimal kbAmount,
+      String transactionId,
+      String kbAccountId,
+      String recurringDetailReference) {
+    final PaymentsRequest paymentsRequest =
+        buildPaymentsRequest(
+            currency, kbAmount, transactionId, kbAccountId, recurringDetailReference);
+    return post(
+        "/payments",
+        GSON.toJson(paymentsRequest),
+        idempotencyKey(PAYMENTS, transactionId),
+        json -> GSON.fromJson(json, PaymentsResponse.class));
+  }
 
-    CreatePaymentReversalRequest paymentReversalRequest = new CreatePaymentReversalRequest();
+  private CreateCheckoutSessionRequest buildCheckoutSessionRequest(
+      Currency currency,
+      BigDecimal kbAmount,
+      String kbTransactionId,
+      String kbAccountId,
+      boolean isRecurrent) {
+    CreateCheckoutSessionRequest checkoutSession =
+        requestTemplate.newCheckoutSessionRequest(isRecurrent);
+    checkoutSession.setReference(kbTransactionId);
+    checkoutSession.setAmount(toAmount(currency, kbAmount));
+    checkoutSession.setShopperReference(kbAccountId);
+    return checkoutSession;
+  }
 
-    paymentReversalRequest.setMerchantAccount(adyenConfigProperties.getMerchantAccount());
+  private CreatePaymentReversalRequest buildReversalRequest(String transactionId) {
+    CreatePaymentReversalRequest paymentReversalRequest = requestTemplate.newReversalRequest();
     paymentReversalRequest.setReference(transactionId);
-
-    return checkout.paymentsReversals(paymentPspReference, paymentReversalRequest);
+    return paymentReversalRequest;
   }
 
-  public PaymentRefundResource refund(
-      Currency currency, BigDecimal kbAmount, String transactionId, String paymentPspReference)
-      throws IOException, ApiException {
-
-    CreatePaymentRefundRequest paymentRefundRequest = new CreatePaymentRefundRequest();
-    Amount amount = new Amount().currency(currency.name()).value(convertToMinorUnit(kbAmount));
-    paymentRefundRequest.setAmount(amount);
-    paymentRefundRequest.setMerchantAccount(adyenConfigProperties.getMerchantAccount());
+  private CreatePaymentRefundRequest buildRefundRequest(
+      Currency currency, BigDecimal kbAmount, String transactionId) {
+    CreatePaymentRefundRequest paymentRefundRequest = requestTemplate.newRefundRequest();
+    paymentRefundRequest.setAmount(toAmount(currency, kbAmount));
     paymentRefundRequest.setReference(transactionId);
-    return checkout.paymentsRefunds(paymentPspReference, paymentRefundRequest);
+    return paymentRefundRequest;
   }
 
-  @Override
-  public PaymentsResponse purchase(
+  private PaymentsRequest buildPaymentsRequest(
       Currency currency,
       BigDecimal kbAmount,
       String transactionId,
       String kbAccountId,
-      String recurringDetailReference)
-      throws IOException, ApiException {
-    PaymentsRequest paymentsRequest = new PaymentsRequest();
-    Amount amount = new Amount().currency(currency.name()).value(convertToMinorUnit(kbAmount));
-    paymentsRequest.setAmount(amount);
+      String recurringDetailReference) {
+    PaymentsRequest paymentsRequest = requestTemplate.newPaymentsRequest();
+    paymentsRequest.setAmount(toAmount(currency, kbAmount));
     paymentsRequest.setReference(transactionId);
-
     paymentsRequest.setShopperReference(kbAccountId);
-    paymentsRequest.setReturnUrl(adyenConfigProperties.getReturnUrl());
-    paymentsRequest.setMerchantAccount(adyenConfigProperties.getMerchantAccount());
-    paymentsRequest.setShopperInteraction(PaymentsRequest.ShopperInteractionEnum.CONTAUTH);
-    paymentsRequest.setRecurringProcessingModel(
-        PaymentsRequest.RecurringProcessingModelEnum.CARD_ON_FILE);
     paymentsRequest.addOneClickData(recurringDetailReference, null);
+    return paymentsRequest;
+  }
 
-    paymentsRequest.setCaptureDelayHours(
-        Integer.valueOf(adyenConfigProperties.getCaptureDelayHours()));
+  private static Amount toAmount(Currency currency, BigDecimal kbAmount) {
+    return new Amount()
+        .currency(currency.name())
+        .value(MinorUnitConverter.toMinorUnits(kbAmount, currency));
+  }
 
-    return checkout.payments(paymentsRequest);
+  /**
+   * Adyen returns the original response, instead of processing the request again, when a request
+   * is retried with the same key. Kill Bill retries a transaction with the same kbTransactionId.
+   */
+  public static String idempotencyKey(final String endpoint, final String kbTransactionId) {
+    return endpoint + "-" + kbTransactionId;
   }
 
-  private Long convertToMinorUnit(BigDecimal amount) {
+  private <T> CompletableFuture<T> post(
+      final String path,
+      final String requestBody,
+      final String idempotencyKey,
+      final ResponseParser<T> parser) {
+    return asyncHttpClient
+        .post(checkoutEndpoint + path, requestBody, idempotencyKey)
+        .thenApply(
+            json -> {
+              try {
+                return parser.parse(json);
+              } catch (final IOException e) {
+                throw new CompletionException(e);
+              }
+            });
+  }
 
-    String minorUnit = amount.toString().replace(".", "");
+  private interface ResponseParser<T> {
 
-    return Long.valueOf(minorUnit);
+    T parse(String json) throws IOException;
   }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.killbill.billing.plugin.adyen.api.ProcessorInputDTO;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+
+/**
+ * Counts the gateway calls in flight on a processor so that, once {@link #retire() retired}, it is
+ * closed as soon as the last of them completes rather than cancelling them. A call made on it after
+ * it is closed, by a caller which got it before it was replaced, goes to the successor instead.
+ */
+class DrainingGatewayProcessor implements GatewayProcessor {
+
+  // Set on inFlight once the delegate is closed, no call can start while the count is negative
+  private static final int CLOSED = -1;
+
+  private final GatewayProcessor delegate;
+  private final Supplier<GatewayProcessor> successor;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean retired;
+
+  DrainingGatewayProcessor(
+      final GatewayProcessor delegate, final Supplier<GatewayProcessor> successor) {
+    this.delegate = delegate;
+    this.successor = successor;
+  }
+
+  @Override
+  public CompletableFuture<ProcessorOutputDTO> processOneTimePaymentAsync(
+      final ProcessorInputDTO input) {
+    return call(processor -> processor.processOneTimePaymentAsync(input));
+  }
+
+  @Override
+  public CompletableFuture<ProcessorOutputDTO> processPaymentAsync(final ProcessorInputDTO input) {
+    return call(processor -> processor.processPaymentAsync(input));
+  }
+
+  @Override
+  public CompletableFuture<ProcessorOutputDTO> refundPaymentAsync(final ProcessorInputDTO input) {
+    return call(processor -> processor.refundPaymentAsync(input));
+  }
+
+  @Override
+  public CompletableFuture<ProcessorOutputDTO> voidPaymentAsync(final ProcessorInputDTO input) {
+    return call(processor -> processor.voidPaymentAsync(input));
+  }
+
+  @Override
+  public ProcessorInputDTO validateData(
+      final AdyenConfigurationHandler adyenConfigurationHandler,
+      final Map<String, String> properties,
+      final UUID context,
+      final UUID kbAccountId) {
+    return delegate.validateData(adyenConfigurationHandler, properties, context, kbAccountId);
+  }
+
+  @Override
+  public Map<String, Object> getMetrics() {
+    return delegate.getMetrics();
+  }
+
+  /** Closes the processor once no call is in flight, now if none is. */
+  void retire() {
+    retired = true;
+    closeIfDrained();
+  }
+
+  /** Closes the processor now, whatever is in flight. */
+  @Override
+  public void close() {
+    if (inFlight.getAndSet(CLOSED) >= 0) {
+      delegate.close();
+    }
+  }
+
+  private CompletableFuture<ProcessorOutputDTO> call(
+      final Function<GatewayProcessor, CompletableFuture<ProcessorOutputDTO>> call) {
+    if (!tryAcquire()) {
+      return call.apply(successor.get());
+    }
+    final CompletableFuture<ProcessorOutputDTO> future;
+    try {
+      future = call.apply(delegate);
+    } catch (final RuntimeException e) {
+      release();
+      throw e;
+    }
+    // The count drops before the caller sees the output
+    return future.whenComplete((output, error) -> release());
+  }
+
+  private boolean tryAcquire() {
+    while (true) {
+      final int current = inFlight.get();
+      if (current < 0) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void release() {
+    if (inFlight.decrementAndGet() == 0 && retired) {
+      closeIfDrained();
+    }
+  }
+
+  private void closeIfDrained() {
+    if (inFlight.compareAndSet(0, CLOSED)) {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of concurrent calls to one Adyen endpoint of a tenant. Calls over the limit
+ * fail fast instead of parking more Kill Bill threads on a slow endpoint.
+ */
+public class GatewayBulkhead {
+
+  private final String name;
+  private final int maxConcurrentCalls;
+  private final Semaphore permits;
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  public GatewayBulkhead(final String name, final int maxConcurrentCalls) {
+    this.name = name;
+    this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+    this.permits = new Semaphore(this.maxConcurrentCalls);
+  }
+
+  /** Returns false when the bulkhead is full, otherwise {@link #release()} must follow. */
+  public boolean tryAcquire() {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    rejectedCount.incrementAndGet();
+    return false;
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public void addMetrics(final Map<String, Object> metrics) {
+    final String prefix = "bulkhead." + name + ".";
+    metrics.put(prefix + "inFlight", maxConcurrentCalls - permits.availablePermits());
+    metrics.put(prefix + "max", maxConcurrentCalls);
+    metrics.put(prefix + "rejected", rejectedCount.get());
+  }
+}
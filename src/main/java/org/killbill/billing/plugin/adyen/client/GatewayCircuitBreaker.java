@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consecutive failure circuit breaker for one Adyen endpoint of a tenant. Once {@code
+ * failureThreshold} calls in a row failed, calls are rejected without reaching Adyen for {@code
+ * openDuration}; then a single probe call is let through (half-open) and its outcome closes or
+ * reopens the circuit.
+ */
+public class GatewayCircuitBreaker {
+
+  private static final Logger logger = LoggerFactory.getLogger(GatewayCircuitBreaker.class);
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final long openDurationNanos;
+  private final LongSupplier nanoClock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAtNanos;
+  private boolean probeInFlight;
+
+  private long openedCount;
+  private long halfOpenedCount;
+  private long closedCount;
+  private long rejectedCount;
+
+  public GatewayCircuitBreaker(
+      final String name, final int failureThreshold, final long openDurationMillis) {
+    this(name, failureThreshold, openDurationMillis, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  GatewayCircuitBreaker(
+      final String name,
+      final int failureThreshold,
+      final long openDurationMillis,
+      final LongSupplier nanoClock) {
+    this.name = name;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Returns false when the call must not be attempted. Every permitted call must be followed by
+   * {@link #onSuccess()} or {@link #onFailure()}.
+   */
+  public synchronized boolean tryAcquirePermission() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos) {
+          rejectedCount++;
+          return false;
+        }
+        transitionTo(State.HALF_OPEN);
+        probeInFlight = true;
+        return true;
+      case HALF_OPEN:
+      default:
+        if (probeInFlight) {
+          rejectedCount++;
+          return false;
+        }
+        probeInFlight = true;
+        return true;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    if (state == State.HALF_OPEN) {
+      probeInFlight = false;
+      transitionTo(State.CLOSED);
+    }
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      probeInFlight = false;
+      open();
+    } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+      open();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized void addMetrics(final Map<String, Object> metrics) {
+    final String prefix = "circuitBreaker." + name + ".";
+    metrics.put(prefix + "state", state.name());
+    metrics.put(prefix + "opened", openedCount);
+    metrics.put(prefix + "halfOpened", halfOpenedCount);
+    metrics.put(prefix + "closed", closedCount);
+    metrics.put(prefix + "rejected", rejectedCount);
+  }
+
+  private void open() {
+    consecutiveFailures = 0;
+    openedAtNanos = nanoClock.getAsLong();
+    transitionTo(State.OPEN);
+  }
+
+  private void transitionTo(final State newState) {
+    logger.info("Circuit breaker {} {} -> {}", name, state, newState);
+    state = newState;
+    switch (newState) {
+      case OPEN:
+        openedCount++;
+        break;
+      case HALF_OPEN:
+        halfOpenedCount++;
+        break;
+      case CLOSED:
+      default:
+        closedCount++;
+        break;
+    }
+  }
+}
@@ -21,19 +21,32 @@ import org.killbill.billing.plugin.adyen.api.ProcessorInputDTO;
 import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
 import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
 
-public interface GatewayProcessor {
+/** The synchronous calls wait for their {@link AsyncGatewayProcessor} counterpart. */
+public interface GatewayProcessor extends AsyncGatewayProcessor {
 
-  public ProcessorOutputDTO processOneTimePayment(ProcessorInputDTO input);
+  public default ProcessorOutputDTO processOneTimePayment(ProcessorInputDTO input) {
+    return processOneTimePaymentAsync(input).join();
+  }
 
-  public ProcessorOutputDTO processPayment(ProcessorInputDTO input);
+  public default ProcessorOutputDTO processPayment(ProcessorInputDTO input) {
+    return processPaymentAsync(input).join();
+  }
 
-  public ProcessorOutputDTO refundPayment(ProcessorInputDTO input);
+  public default ProcessorOutputDTO refundPayment(ProcessorInputDTO input) {
+    return refundPaymentAsync(input).join();
+  }
 
-  public ProcessorOutputDTO voidPayment(ProcessorInputDTO input);
+  public default ProcessorOutputDTO voidPayment(ProcessorInputDTO input) {
+    return voidPaymentAsync(input).join();
+  }
 
   public ProcessorInputDTO validateData(
       AdyenConfigurationHandler adyenConfigurationHandler,
       Map<String, String> properties,
       UUID context,
       UUID kbAccountId);
+
+  public Map<String, Object> getMetrics();
+
+  public void close();
 }
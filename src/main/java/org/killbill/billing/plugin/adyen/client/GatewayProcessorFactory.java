@@ -23,6 +23,6 @@ public class GatewayProcessorFactory {
   public static GatewayProcessor get(AdyenConfigProperties adyenConfigProperties) {
     AdyenSDKClientImpl httpClient = new AdyenSDKClientImpl(adyenConfigProperties);
 
-    return new AdyenProcessorImpl(httpClient);
+    return new AdyenProcessorImpl(httpClient, adyenConfigProperties);
   }
 }
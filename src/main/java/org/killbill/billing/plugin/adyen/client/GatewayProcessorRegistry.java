@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+
+/**
+ * Keeps one long-lived {@link GatewayProcessor} per tenant so the Adyen client and its Checkout
+ * service are reused across calls. An entry is rebuilt only when the configuration handler hands
+ * out a different {@link AdyenConfigProperties} instance for the tenant, which happens when the
+ * tenant configuration changes.
+ *
+ * <p>A replaced processor is closed only once the calls in flight on it have completed, since
+ * closing it cancels their requests: Adyen may have charged the card while the payment is left
+ * PENDING. See {@link DrainingGatewayProcessor}.
+ */
+public class GatewayProcessorRegistry {
+
+  // ConcurrentHashMap does not accept null keys, the default configuration is stored under this one
+  private static final UUID DEFAULT_TENANT_KEY = new UUID(0L, 0L);
+
+  private final AdyenConfigurationHandler adyenConfigurationHandler;
+  private final ConcurrentMap<UUID, Entry> processors = new ConcurrentHashMap<>();
+
+  public GatewayProcessorRegistry(final AdyenConfigurationHandler adyenConfigurationHandler) {
+    this.adyenConfigurationHandler = adyenConfigurationHandler;
+  }
+
+  public GatewayProcessor get(@Nullable final UUID kbTenantId) {
+    final AdyenConfigProperties current = adyenConfigurationHandler.getConfigurable(kbTenantId);
+    final UUID key = toKey(kbTenantId);
+
+    final Entry existing = processors.get(key);
+    if (existing != null && existing.configuration == current) {
+      return existing.processor;
+    }
+
+    synchronized (processors) {
+      final Entry latest = processors.get(key);
+      if (latest != null && latest.configuration == current) {
+        return latest.processor;
+      }
+      final Entry created =
+          new Entry(
+              current,
+              new DrainingGatewayProcessor(
+                  GatewayProcessorFactory.get(current), () -> get(kbTenantId)));
+      processors.put(key, created);
+      if (latest != null) {
+        // Release the connection pool built for the previous configuration
+        latest.processor.retire();
+      }
+      return created.processor;
+    }
+  }
+
+  /** Empty when no call has built the processor of the tenant yet. */
+  public Map<String, Object> getMetrics(@Nullable final UUID kbTenantId) {
+    final Entry existing = processors.get(toKey(kbTenantId));
+    return existing == null ? Collections.emptyMap() : existing.processor.getMetrics();
+  }
+
+  public void invalidate(@Nullable final UUID kbTenantId) {
+    final Entry removed = processors.remove(toKey(kbTenantId));
+    if (removed != null) {
+      removed.processor.retire();
+    }
+  }
+
+  public int size() {
+    return processors.size();
+  }
+
+  /** The processors are closed once their calls in flight have completed. */
+  public void close() {
+    synchronized (processors) {
+      for (final Entry entry : processors.values()) {
+        entry.processor.retire();
+      }
+      processors.clear();
+    }
+  }
+
+  private static UUID toKey(@Nullable final UUID kbTenantId) {
+    return kbTenantId == null ? DEFAULT_TENANT_KEY : kbTenantId;
+  }
+
+  private static final class Entry {
+
+    private final AdyenConfigProperties configuration;
+    private final DrainingGatewayProcessor processor;
+
+    private Entry(
+        final AdyenConfigProperties configuration, final DrainingGatewayProcessor processor) {
+      this.configuration = configuration;
+      this.processor = processor;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.CreateCheckoutSessionRequest.RecurringProcessingModelEnum;
+import com.adyen.model.checkout.CreateCheckoutSessionRequest.ShopperInteractionEnum;
+import com.adyen.model.checkout.CreatePaymentRefundRequest;
+import com.adyen.model.checkout.CreatePaymentReversalRequest;
+import com.adyen.model.checkout.PaymentsRequest;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+
+/**
+ * Merchant fields shared by every request of a tenant, resolved once from the configuration when
+ * the tenant's {@link AdyenSDKClientImpl} is built. The Adyen request models are mutable, so each
+ * call gets a new request pre-filled from the template and only sets the amount, reference and
+ * shopper fields.
+ */
+public final class MerchantRequestTemplate {
+
+  private final String merchantAccount;
+  private final String returnUrl;
+  private final String countryCode;
+  private final Integer captureDelayHours;
+
+  public MerchantRequestTemplate(final AdyenConfigProperties adyenConfigProperties) {
+    this.merchantAccount = adyenConfigProperties.getMerchantAccount();
+    this.returnUrl = adyenConfigProperties.getReturnUrl();
+    this.countryCode = adyenConfigProperties.getRegion();
+    this.captureDelayHours = adyenConfigProperties.getCaptureDelayHoursValue();
+  }
+
+  public PaymentsRequest newPaymentsRequest() {
+    final PaymentsRequest paymentsRequest = new PaymentsRequest();
+    paymentsRequest.setReturnUrl(returnUrl);
+    paymentsRequest.setMerchantAccount(merchantAccount);
+    paymentsRequest.setShopperInteraction(PaymentsRequest.ShopperInteractionEnum.CONTAUTH);
+    paymentsRequest.setRecurringProcessingModel(
+        PaymentsRequest.RecurringProcessingModelEnum.CARD_ON_FILE);
+    paymentsRequest.setCaptureDelayHours(captureDelayHours);
+    return paymentsRequest;
+  }
+
+  public CreateCheckoutSessionRequest newCheckoutSessionRequest(final boolean isRecurrent) {
+    final CreateCheckoutSessionRequest checkoutSession = new CreateCheckoutSessionRequest();
+    checkoutSession.merchantAccount(merchantAccount);
+    checkoutSession.setChannel(CreateCheckoutSessionRequest.ChannelEnum.WEB);
+    checkoutSession.setReturnUrl(returnUrl);
+    checkoutSession.setCountryCode(countryCode);
+    checkoutSession.setCaptureDelayHours(captureDelayHours);
+    if (isRecurrent) {
+      checkoutSession.setRecurringProcessingModel(RecurringProcessingModelEnum.CARDONFILE);
+      checkoutSession.shopperInteraction(ShopperInteractionEnum.ECOMMERCE);
+      checkoutSession.storePaymentMethod(true);
+    }
+    return checkoutSession;
+  }
+
+  public CreatePaymentRefundRequest newRefundRequest() {
+    final CreatePaymentRefundRequest paymentRefundRequest = new CreatePaymentRefundRequest();
+    paymentRefundRequest.setMerchantAccount(merchantAccount);
+    return paymentRefundRequest;
+  }
+
+  public CreatePaymentReversalRequest newReversalRequest() {
+    final CreatePaymentReversalRequest paymentReversalRequest = new CreatePaymentReversalRequest();
+    paymentReversalRequest.setMerchantAccount(merchantAccount);
+    return paymentReversalRequest;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import org.killbill.billing.catalog.api.Currency;
+
+/**
+ * Converts Kill Bill amounts to the minor units Adyen expects, using the ISO 4217 exponent of the
+ * currency (0 for JPY, 2 for USD, 3 for KWD). The exponents are resolved once per {@link Currency},
+ * a conversion is a decimal shift with no string building.
+ */
+public final class MinorUnitConverter {
+
+  // Used for the Kill Bill currencies unknown to the JDK (e.g. BTC)
+  static final int DEFAULT_EXPONENT = 2;
+
+  private static final int[] EXPONENTS = new int[Currency.values().length];
+
+  static {
+    for (final Currency currency : Currency.values()) {
+      EXPONENTS[currency.ordinal()] = resolveExponent(currency);
+    }
+  }
+
+  private MinorUnitConverter() {}
+
+  public static int getExponent(final Currency currency) {
+    return EXPONENTS[currency.ordinal()];
+  }
+
+  /**
+   * Amounts with more decimals than the currency allows are rounded half up.
+   *
+   * @throws ArithmeticException if the amount does not fit in a long once converted
+   */
+  public static long toMinorUnits(final BigDecimal amount, final Currency currency) {
+    final int exponent = EXPONENTS[currency.ordinal()];
+    final BigDecimal scaled =
+        amount.scale() > exponent ? amount.setScale(exponent, RoundingMode.HALF_UP) : amount;
+    // The result has a scale of 0, longValueExact reads the compact value directly
+    return scaled.movePointRight(exponent).longValueExact();
+  }
+
+  private static int resolveExponent(final Currency currency) {
+    try {
+      final int fractionDigits =
+          java.util.Currency.getInstance(currency.name()).getDefaultFractionDigits();
+      // -1 for pseudo currencies such as XAU, which have no minor unit
+      return Math.max(fractionDigits, 0);
+    } catch (final IllegalArgumentException e) {
+      return DEFAULT_EXPONENT;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.killbill.billing.osgi.api.OSGIPluginProperties;
 import org.killbill.billing.osgi.libs.killbill.KillbillActivatorBase;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.plugin.adyen.api.AdyenPaymentPluginApi;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorRegistry;
 import org.killbill.billing.plugin.adyen.core.resources.AdyenCheckoutService;
 import org.killbill.billing.plugin.adyen.core.resources.AdyenCheckoutServlet;
 import org.killbill.billing.plugin.adyen.core.resources.AdyenHealthcheckServlet;
@@ -44,13 +45,15 @@ public class AdyenActivator extends KillbillActivatorBase {
   public static final String PLUGIN_NAME = "adyen-plugin";
 
   private AdyenConfigurationHandler adyenConfigurationHandler;
+  private GatewayProcessorRegistry gatewayProcessorRegistry;
+  private AdyenNotificationQueue notificationQueue;
+  private TenantSubjectCache tenantSubjectCache;
 
   @Override
   public void start(final BundleContext context) throws Exception {
     super.start(context);
 
     logger.info(" starting plugin {}", PLUGIN_NAME);
-    final AdyenDao adyenDao = new AdyenDao(dataSource.getDataSource());
 
     final String region = PluginEnvironmentConfig.getRegion(configProperties.getProperties());
 
@@ -61,20 +64,46 @@ public class AdyenActivator extends KillbillActivatorBase {
         adyenConfigurationHandler.createConfigurable(configProperties.getProperties());
     adyenConfigurationHandler.setDefaultConfigurable(globalConfiguration);
 
+    final AdyenDao adyenDao =
+        new AdyenDao(
+            dataSource.getDataSource(),
+            globalConfiguration.getPaymentMethodCacheTtlSeconds(),
+            globalConfiguration.getPaymentMethodCacheMaxSize());
+
     // As an example, this plugin registers a PaymentPluginApi (this could be changed to any other
     // plugin api)
     logger.info("Registering an APIs");
-    final PaymentPluginApi paymentPluginApi =
+    gatewayProcessorRegistry = new GatewayProcessorRegistry(adyenConfigurationHandler);
+    final AdyenPaymentPluginApi paymentPluginApi =
         new AdyenPaymentPluginApi(
-            adyenConfigurationHandler, killbillAPI, configProperties, clock.getClock(), adyenDao);
+            adyenConfigurationHandler,
+            killbillAPI,
+            configProperties,
+            clock.getClock(),
+            adyenDao,
+            gatewayProcessorRegistry);
     registerPaymentPluginApi(context, paymentPluginApi);
 
+    if (globalConfiguration.isVirtualThreads()) {
+      logger.info(
+          "Virtual threads requested, supported by this runtime: {}",
+          AdyenExecutors.isVirtualThreadSupported());
+    }
+    notificationQueue =
+        new AdyenNotificationQueue(
+            adyenDao,
+            (notification, itemExecutor) ->
+                paymentPluginApi.handleNotification(notification, null, itemExecutor),
+            globalConfiguration);
+    notificationQueue.start();
+
     // Expose a healthcheck (optional), so other plugins can check on the plugin status
     logger.info("Registering healthcheck");
-    final Healthcheck healthcheck = new AdyenHealthcheck();
+    final Healthcheck healthcheck = new AdyenHealthcheck(gatewayProcessorRegistry, adyenDao);
     registerHealthcheck(context, healthcheck);
+    tenantSubjectCache = new TenantSubjectCache(killbillAPI, adyenConfigurationHandler);
     final AdyenCheckoutService checkoutService =
-        new AdyenCheckoutService(killbillAPI, adyenConfigurationHandler);
+        new AdyenCheckoutService(killbillAPI, tenantSubjectCache);
     // Register a servlet (optional)
     final PluginApp pluginApp =
         new PluginAppBuilder(PLUGIN_NAME, killbillAPI, dataSource, super.clock, configProperties)
@@ -85,6 +114,7 @@ public class AdyenActivator extends KillbillActivatorBase {
             .withService(clock)
             .withService(checkoutService)
             .withService(paymentPluginApi)
+            .withService(notificationQueue)
             .build();
     final HttpServlet httpServlet = PluginApp.createServlet(pluginApp);
 
@@ -93,6 +123,20 @@ public class AdyenActivator extends KillbillActivatorBase {
     registerHandlers();
   }
 
+  @Override
+  public void stop(final BundleContext context) throws Exception {
+    if (notificationQueue != null) {
+      notificationQueue.stop();
+    }
+    if (gatewayProcessorRegistry != null) {
+      gatewayProcessorRegistry.close();
+    }
+    if (tenantSubjectCache != null) {
+      tenantSubjectCache.close();
+    }
+    super.stop(context);
+  }
+
   private void registerHandlers() {
     final PluginConfigurationEventHandler configHandler =
         new PluginConfigurationEventHandler(adyenConfigurationHandler);
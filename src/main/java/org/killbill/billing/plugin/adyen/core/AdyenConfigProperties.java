@@ -16,11 +16,23 @@
 
 package org.killbill.billing.plugin.adyen.core;
 
+import com.adyen.enums.Environment;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Immutable snapshot of the plugin configuration of a tenant. The fallback to environment
+ * variables and the parsing of derived values happen once, when the configuration is loaded, so
+ * that the getters are plain field reads.
+ */
 public class AdyenConfigProperties {
 
+  private static final Logger logger = LoggerFactory.getLogger(AdyenConfigProperties.class);
+
   private static final String PROPERTY_PREFIX = "org.killbill.billing.plugin.adyen.";
 
   public static final String ADYEN_API_KEY = "ADYEN_API_KEY";
@@ -32,30 +44,142 @@ public class AdyenConfigProperties {
   public static final String ADYEN_KB_USERNAME = "ADYEN_KB_USERNAME";
   public static final String ADYEN_KB_PASSWORD = "ADYEN_KB_PASSWORD";
 
+  public static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+  public static final String EXECUTOR_MODE_PLATFORM = "platform";
+
+  private static final int DEFAULT_HTTP_MAX_CONNECTIONS = 50;
+  private static final int DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE = 20;
+  private static final int DEFAULT_HTTP_CONNECT_TIMEOUT_MS = 10000;
+  private static final int DEFAULT_HTTP_READ_TIMEOUT_MS = 60000;
+  private static final int DEFAULT_HTTP_IDLE_TIMEOUT_SECONDS = 30;
+  private static final int DEFAULT_NOTIFICATION_WORKERS = 4;
+  private static final int DEFAULT_NOTIFICATION_ITEM_WORKERS = 4;
+  private static final int DEFAULT_NOTIFICATION_QUEUE_CAPACITY = 1000;
+  private static final int DEFAULT_NOTIFICATION_MAX_ATTEMPTS = 5;
+  private static final int DEFAULT_NOTIFICATION_RETRY_DELAY_SECONDS = 60;
+  private static final int DEFAULT_NOTIFICATION_STALE_SECONDS = 600;
+  private static final int DEFAULT_PAYMENT_METHOD_CACHE_TTL_SECONDS = 30;
+  private static final int DEFAULT_PAYMENT_METHOD_CACHE_MAX_SIZE = 10000;
+  private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+  private static final int DEFAULT_CIRCUIT_BREAKER_OPEN_SECONDS = 30;
+  private static final int DEFAULT_BULKHEAD_MAX_CONCURRENT_CALLS = 20;
+  private static final int DEFAULT_IDEMPOTENCY_CACHE_TTL_SECONDS = 60;
+  private static final int DEFAULT_CHECKOUT_LOGIN_TTL_SECONDS = 300;
+
   private final String region;
 
-  private String apiKey;
-  private String merchantAccount;
-  private String returnUrl;
-  private String hcmaKey;
-  private String captureDelayHours;
-  private String enviroment;
+  private final String apiKey;
+  private final String merchantAccount;
+  private final String returnUrl;
+  private final String hcmaKey;
+  private final String captureDelayHours;
+  private final String enviroment;
+
+  private final String username;
 
-  private String username;
+  private final String password;
 
-  private String password;
+  private final Environment environment;
+  private final Integer captureDelayHoursValue;
+  @Nullable private final NotificationSignatureValidator notificationSignatureValidator;
+
+  private final String checkoutEndpoint;
+  private final int httpMaxConnections;
+  private final int httpMaxConnectionsPerRoute;
+  private final int httpConnectTimeoutMs;
+  private final int httpReadTimeoutMs;
+  private final int httpIdleTimeoutSeconds;
+  private final int notificationWorkers;
+  private final int notificationItemWorkers;
+  private final int notificationQueueCapacity;
+  private final int notificationMaxAttempts;
+  private final int notificationRetryDelaySeconds;
+  private final int notificationStaleSeconds;
+  private final int paymentMethodCacheTtlSeconds;
+  private final int paymentMethodCacheMaxSize;
+  private final int circuitBreakerFailureThreshold;
+  private final int circuitBreakerOpenSeconds;
+  private final int bulkheadMaxConcurrentCalls;
+  private final boolean virtualThreads;
+  private final int idempotencyCacheTtlSeconds;
+  private final int checkoutLoginTtlSeconds;
 
   public AdyenConfigProperties(final Properties properties, final String region) {
+    this(properties, region, System.getenv());
+  }
+
+  AdyenConfigProperties(
+      final Properties properties, final String region, final Map<String, String> env) {
     this.region = region;
 
-    this.apiKey = properties.getProperty(PROPERTY_PREFIX + "apiKey");
-    this.merchantAccount = properties.getProperty(PROPERTY_PREFIX + "merchantAccount");
-    this.returnUrl = properties.getProperty(PROPERTY_PREFIX + "returnUrl");
-    this.hcmaKey = properties.getProperty(PROPERTY_PREFIX + "hcmaKey");
-    this.captureDelayHours = properties.getProperty(PROPERTY_PREFIX + "captureDelayHours");
-    this.enviroment = properties.getProperty(PROPERTY_PREFIX + "enviroment");
-    this.username = properties.getProperty(PROPERTY_PREFIX + "username");
-    this.password = properties.getProperty(PROPERTY_PREFIX + "password");
+    this.apiKey = getString(properties, "apiKey", env, ADYEN_API_KEY, null);
+    this.merchantAccount =
+        getString(properties, "merchantAccount", env, ADYEN_MERCHANT_ACCOUNT, null);
+    this.returnUrl = getString(properties, "returnUrl", env, ADYEN_RETURN_URL, null);
+    this.hcmaKey = getString(properties, "hcmaKey", env, ADYEN_HMAC_KEY, null);
+    this.captureDelayHours =
+        getString(properties, "captureDelayHours", env, ADYEN_CAPTURE_DELAY_HOURS, null);
+    this.enviroment = getString(properties, "enviroment", env, ADYEN_ENVIROMENT, "TEST");
+    this.username = getString(properties, "username", env, ADYEN_KB_USERNAME, null);
+    this.password = getString(properties, "password", env, ADYEN_KB_PASSWORD, null);
+
+    this.environment = parseEnvironment(enviroment);
+    this.captureDelayHoursValue = parseCaptureDelayHours(captureDelayHours);
+    this.notificationSignatureValidator = NotificationSignatureValidator.forHexKey(hcmaKey);
+
+    this.checkoutEndpoint = getString(properties, "checkoutEndpoint", env, null, null);
+    this.httpMaxConnections =
+        getInt(properties, "httpMaxConnections", DEFAULT_HTTP_MAX_CONNECTIONS);
+    this.httpMaxConnectionsPerRoute =
+        getInt(properties, "httpMaxConnectionsPerRoute", DEFAULT_HTTP_MAX_CONNECTIONS_PER_ROUTE);
+    this.httpConnectTimeoutMs =
+        getInt(properties, "httpConnectTimeoutMs", DEFAULT_HTTP_CONNECT_TIMEOUT_MS);
+    this.httpReadTimeoutMs = getInt(properties, "httpReadTimeoutMs", DEFAULT_HTTP_READ_TIMEOUT_MS);
+    this.httpIdleTimeoutSeconds =
+        getInt(properties, "httpIdleTimeoutSeconds", DEFAULT_HTTP_IDLE_TIMEOUT_SECONDS);
+    this.notificationWorkers =
+        getInt(properties, "notificationWorkers", DEFAULT_NOTIFICATION_WORKERS);
+    this.notificationItemWorkers =
+        getInt(properties, "notificationItemWorkers", DEFAULT_NOTIFICATION_ITEM_WORKERS);
+    this.notificationQueueCapacity =
+        getInt(properties, "notificationQueueCapacity", DEFAULT_NOTIFICATION_QUEUE_CAPACITY);
+    this.notificationMaxAttempts =
+        getInt(properties, "notificationMaxAttempts", DEFAULT_NOTIFICATION_MAX_ATTEMPTS);
+    this.notificationRetryDelaySeconds =
+        getInt(
+            properties,
+            "notificationRetryDelaySeconds",
+            DEFAULT_NOTIFICATION_RETRY_DELAY_SECONDS);
+    this.notificationStaleSeconds =
+        getInt(properties, "notificationStaleSeconds", DEFAULT_NOTIFICATION_STALE_SECONDS);
+    this.paymentMethodCacheTtlSeconds =
+        getInt(
+            properties,
+            "paymentMethodCacheTtlSeconds",
+            DEFAULT_PAYMENT_METHOD_CACHE_TTL_SECONDS);
+    this.paymentMethodCacheMaxSize =
+        getInt(properties, "paymentMethodCacheMaxSize", DEFAULT_PAYMENT_METHOD_CACHE_MAX_SIZE);
+    this.circuitBreakerFailureThreshold =
+        getInt(
+            properties,
+            "circuitBreakerFailureThreshold",
+            DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD);
+    this.circuitBreakerOpenSeconds =
+        getInt(properties, "circuitBreakerOpenSeconds", DEFAULT_CIRCUIT_BREAKER_OPEN_SECONDS);
+    this.bulkheadMaxConcurrentCalls =
+        getInt(properties, "bulkheadMaxConcurrentCalls", DEFAULT_BULKHEAD_MAX_CONCURRENT_CALLS);
+    this.virtualThreads =
+        EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(
+            properties
+                .getProperty(PROPERTY_PREFIX + "executorMode", EXECUTOR_MODE_PLATFORM)
+                .trim());
+    this.idempotencyCacheTtlSeconds =
+        getInt(
+            properties,
+            "idempotencyCacheTtlSeconds",
+            DEFAULT_IDEMPOTENCY_CACHE_TTL_SECONDS);
+    this.checkoutLoginTtlSeconds =
+        getInt(properties, "checkoutLoginTtlSeconds", DEFAULT_CHECKOUT_LOGIN_TTL_SECONDS);
   }
 
   public String getRegion() {
@@ -64,76 +188,189 @@ public class AdyenConfigProperties {
   }
 
   public String getApiKey() {
-    if (apiKey == null || apiKey.isEmpty()) {
-      return getClient(ADYEN_API_KEY, null);
-    }
     return apiKey;
   }
 
   public String getHMACKey() {
-    if (hcmaKey == null || hcmaKey.isEmpty()) {
-      return getClient(ADYEN_HMAC_KEY, null);
-    }
     return hcmaKey;
   }
 
-  public String getMerchantAccount() {
-    if (merchantAccount == null || merchantAccount.isEmpty()) {
-      return getClient(ADYEN_MERCHANT_ACCOUNT, null);
-    }
+  /** Null when the HMAC key is missing or invalid. */
+  @Nullable
+  public NotificationSignatureValidator getNotificationSignatureValidator() {
+    return notificationSignatureValidator;
+  }
 
+  public String getMerchantAccount() {
     return merchantAccount;
   }
 
   public String getReturnUrl() {
-    if (returnUrl == null || returnUrl.isEmpty()) {
-      return getClient(ADYEN_RETURN_URL, null);
-    }
-
     return returnUrl;
   }
 
   public String getUsername() {
-    if (username == null || username.isEmpty()) {
-      return getClient(ADYEN_KB_USERNAME, null);
-    }
-
     return username;
   }
 
   public String getPassword() {
-    if (password == null || password.isEmpty()) {
-      return getClient(ADYEN_KB_PASSWORD, null);
-    }
-
     return password;
   }
 
   public String getCaptureDelayHours() {
-    if (captureDelayHours == null || captureDelayHours.isEmpty()) {
-      return getClient(ADYEN_CAPTURE_DELAY_HOURS, null);
-    }
-
     return captureDelayHours;
   }
 
+  /** Capture delay in hours, null when not configured. */
+  @Nullable
+  public Integer getCaptureDelayHoursValue() {
+    return captureDelayHoursValue;
+  }
+
   public String getEnviroment() {
-    if (enviroment == null || enviroment.isEmpty()) {
-      return getClient(ADYEN_ENVIROMENT, "TEST");
+    return enviroment;
+  }
+
+  public Environment getEnvironment() {
+    if (environment == null) {
+      throw new IllegalArgumentException("Invalid Adyen environment " + enviroment);
     }
+    return environment;
+  }
 
-    return enviroment;
+  /** Overrides the Checkout endpoint of the environment, null to use the Adyen one. */
+  @Nullable
+  public String getCheckoutEndpoint() {
+    return checkoutEndpoint;
+  }
+
+  public int getHttpMaxConnections() {
+    return httpMaxConnections;
+  }
+
+  public int getHttpMaxConnectionsPerRoute() {
+    return httpMaxConnectionsPerRoute;
+  }
+
+  public int getHttpConnectTimeoutMs() {
+    return httpConnectTimeoutMs;
+  }
+
+  public int getHttpReadTimeoutMs() {
+    return httpReadTimeoutMs;
+  }
+
+  public int getHttpIdleTimeoutSeconds() {
+    return httpIdleTimeoutSeconds;
+  }
+
+  public int getNotificationWorkers() {
+    return notificationWorkers;
+  }
+
+  public int getNotificationItemWorkers() {
+    return notificationItemWorkers;
+  }
+
+  public int getNotificationQueueCapacity() {
+    return notificationQueueCapacity;
+  }
+
+  public int getNotificationMaxAttempts() {
+    return notificationMaxAttempts;
+  }
+
+  public int getNotificationRetryDelaySeconds() {
+    return notificationRetryDelaySeconds;
+  }
+
+  public int getNotificationStaleSeconds() {
+    return notificationStaleSeconds;
+  }
+
+  public int getPaymentMethodCacheTtlSeconds() {
+    return paymentMethodCacheTtlSeconds;
+  }
+
+  public int getPaymentMethodCacheMaxSize() {
+    return paymentMethodCacheMaxSize;
+  }
+
+  public int getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  public int getCircuitBreakerOpenSeconds() {
+    return circuitBreakerOpenSeconds;
+  }
+
+  public int getBulkheadMaxConcurrentCalls() {
+    return bulkheadMaxConcurrentCalls;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
   }
 
-  private String getClient(String envKey, String defaultValue) {
-    Map<String, String> env = System.getenv();
+  public int getIdempotencyCacheTtlSeconds() {
+    return idempotencyCacheTtlSeconds;
+  }
+
+  public int getCheckoutLoginTtlSeconds() {
+    return checkoutLoginTtlSeconds;
+  }
 
-    String value = env.get(envKey);
+  private static int getInt(
+      final Properties properties, final String propertyName, final int defaultValue) {
+    final String value = properties.getProperty(PROPERTY_PREFIX + propertyName);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (final NumberFormatException e) {
+      logger.warn("Invalid value {} for {}, using {}", value, propertyName, defaultValue);
+      return defaultValue;
+    }
+  }
 
-    if (value == null || value.isEmpty()) {
+  private static String getString(
+      final Properties properties,
+      final String propertyName,
+      final Map<String, String> env,
+      @Nullable final String envKey,
+      @Nullable final String defaultValue) {
+    final String value = properties.getProperty(PROPERTY_PREFIX + propertyName);
+    if (value != null && !value.isEmpty()) {
+      return value;
+    }
+    final String envValue = envKey == null ? null : env.get(envKey);
+    if (envValue == null || envValue.isEmpty()) {
       return defaultValue;
     }
+    return envValue;
+  }
+
+  @Nullable
+  private static Environment parseEnvironment(final String value) {
+    try {
+      return Environment.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (final IllegalArgumentException e) {
+      logger.warn("Invalid Adyen environment {}", value);
+      return null;
+    }
+  }
 
-    return value;
+  @Nullable
+  private static Integer parseCaptureDelayHours(@Nullable final String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value.trim());
+    } catch (final NumberFormatException e) {
+      logger.warn("Invalid value {} for captureDelayHours, ignoring it", value);
+      return null;
+    }
   }
 }
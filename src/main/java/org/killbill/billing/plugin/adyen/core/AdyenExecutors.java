@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the threads of the plugin's blocking work (notification processing, JDBC lookups). With
+ * {@code executorMode=virtual} and a JDK 21+ runtime they are virtual threads, otherwise daemon
+ * platform threads. The virtual thread API is looked up reflectively since the plugin is compiled
+ * for older JDKs.
+ */
+public final class AdyenExecutors {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdyenExecutors.class);
+
+  @Nullable private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+  // Invoked through the public Thread.Builder interface, the implementations are not exported
+  @Nullable
+  private static final Method BUILDER_NAME =
+      findMethod("java.lang.Thread$Builder", "name", String.class, long.class);
+
+  @Nullable
+  private static final Method BUILDER_FACTORY = findMethod("java.lang.Thread$Builder", "factory");
+
+  @Nullable
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+      findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+  private AdyenExecutors() {}
+
+  public static boolean isVirtualThreadSupported() {
+    return OF_VIRTUAL != null
+        && BUILDER_NAME != null
+        && BUILDER_FACTORY != null
+        && NEW_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /** Threads are named {@code prefix-N}. */
+  public static ThreadFactory newThreadFactory(final String prefix, final boolean virtual) {
+    if (virtual) {
+      final ThreadFactory virtualThreadFactory = newVirtualThreadFactory(prefix);
+      if (virtualThreadFactory != null) {
+        return virtualThreadFactory;
+      }
+    }
+    return new ThreadFactoryBuilder().setNameFormat(prefix + "-%d").setDaemon(true).build();
+  }
+
+  /**
+   * Virtual threads: one thread per task, the number of concurrent tasks is bounded by the caller.
+   * Platform threads: a fixed pool of {@code platformThreads}.
+   */
+  public static ExecutorService newExecutor(
+      final String prefix, final int platformThreads, final boolean virtual) {
+    if (virtual) {
+      final ThreadFactory virtualThreadFactory = newVirtualThreadFactory(prefix);
+      if (virtualThreadFactory != null) {
+        try {
+          return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, virtualThreadFactory);
+        } catch (final ReflectiveOperationException e) {
+          logger.warn("Unable to create a virtual thread executor, using platform threads", e);
+        }
+      }
+    }
+    return Executors.newFixedThreadPool(platformThreads, newThreadFactory(prefix, false));
+  }
+
+  @Nullable
+  private static ThreadFactory newVirtualThreadFactory(final String prefix) {
+    if (!isVirtualThreadSupported()) {
+      logger.warn("Virtual threads require JDK 21+, {} uses platform threads", prefix);
+      return null;
+    }
+    try {
+      final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix + "-", 0L);
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      logger.warn("Unable to create virtual threads, {} uses platform threads", prefix, e);
+      return null;
+    }
+  }
+
+  @Nullable
+  private static Method findMethod(
+      final String className, final String name, final Class<?>... parameterTypes) {
+    try {
+      return findMethod(Class.forName(className), name, parameterTypes);
+    } catch (final ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static Method findMethod(
+      final Class<?> type, final String name, final Class<?>... parameterTypes) {
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (final NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
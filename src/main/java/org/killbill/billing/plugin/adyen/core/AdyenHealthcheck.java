@@ -16,9 +16,12 @@
 
 package org.killbill.billing.plugin.adyen.core;
 
+import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.killbill.billing.osgi.api.Healthcheck;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorRegistry;
+import org.killbill.billing.plugin.adyen.dao.AdyenDao;
 import org.killbill.billing.tenant.api.Tenant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +29,20 @@ import org.slf4j.LoggerFactory;
 public class AdyenHealthcheck implements Healthcheck {
   private static final Logger logger = LoggerFactory.getLogger(AdyenHealthcheck.class);
 
+  private final GatewayProcessorRegistry gatewayProcessorRegistry;
+  private final AdyenDao adyenDao;
+
+  public AdyenHealthcheck() {
+    this(null, null);
+  }
+
+  public AdyenHealthcheck(
+      @Nullable final GatewayProcessorRegistry gatewayProcessorRegistry,
+      @Nullable final AdyenDao adyenDao) {
+    this.gatewayProcessorRegistry = gatewayProcessorRegistry;
+    this.adyenDao = adyenDao;
+  }
+
   @Override
   public HealthStatus getHealthStatus(
       @Nullable final Tenant tenant, @Nullable final Map properties) {
@@ -35,15 +52,24 @@ public class AdyenHealthcheck implements Healthcheck {
     } else {
       // Specifying the tenant lets you also validate the tenant configuration
 
-      return pingGatewayService();
+      return pingGatewayService(tenant);
     }
   }
 
-  private HealthStatus pingGatewayService() {
+  private HealthStatus pingGatewayService(final Tenant tenant) {
 
     try {
-
-      return HealthStatus.healthy("Adyen OK");
+      if (gatewayProcessorRegistry == null) {
+        return HealthStatus.healthy("Adyen OK");
+      }
+      // Expose the tenant connection pool utilization next to the status
+      final Map<String, Object> details = new HashMap<>();
+      details.put("message", "Adyen OK");
+      details.putAll(gatewayProcessorRegistry.getMetrics(tenant.getId()));
+      if (adyenDao != null) {
+        details.putAll(adyenDao.getPaymentMethodCacheMetrics());
+      }
+      return new HealthStatus(true, details);
     } catch (final Exception e) {
       logger.warn("Healthcheck error", e);
       return HealthStatus.unHealthy("Adyen error: " + e.getMessage());
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.jooq.types.ULong;
+import org.killbill.billing.plugin.adyen.api.NotificationItemOutcome;
+import org.killbill.billing.plugin.adyen.dao.AdyenDao;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsQueueRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable ingestion queue for Adyen webhooks. The servlet only persists the raw body and acks
+ * Adyen, a bounded pool of workers applies the notifications in the background. The items of a
+ * batch are fanned out to a second pool so that different payments are updated concurrently.
+ *
+ * <p>A notification which cannot be handed to a worker straight away (pool saturated, plugin
+ * restarted, failed attempt) stays in the database and is resubmitted by a periodic sweeper, until
+ * it is marked FAILED after the configured number of attempts.
+ */
+public class AdyenNotificationQueue {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdyenNotificationQueue.class);
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  public interface NotificationProcessor {
+
+    List<NotificationItemOutcome> process(String notification, Executor itemExecutor)
+        throws Exception;
+  }
+
+  private final AdyenDao adyenDao;
+  private final NotificationProcessor processor;
+  private final int maxAttempts;
+  private final int retryDelaySeconds;
+  private final int staleSeconds;
+  private final ThreadPoolExecutor workers;
+  private final ExecutorService itemWorkers;
+  private final ScheduledExecutorService sweeper;
+
+  public AdyenNotificationQueue(
+      final AdyenDao adyenDao,
+      final NotificationProcessor processor,
+      final AdyenConfigProperties adyenConfigProperties) {
+    this.adyenDao = adyenDao;
+    this.processor = processor;
+    this.maxAttempts = adyenConfigProperties.getNotificationMaxAttempts();
+    this.retryDelaySeconds = adyenConfigProperties.getNotificationRetryDelaySeconds();
+    this.staleSeconds = adyenConfigProperties.getNotificationStaleSeconds();
+    // The pool bounds the number of concurrent notifications either way, with virtual threads it
+    // can be sized for the database and Kill Bill rather than for the memory of the threads
+    this.workers =
+        new ThreadPoolExecutor(
+            adyenConfigProperties.getNotificationWorkers(),
+            adyenConfigProperties.getNotificationWorkers(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(adyenConfigProperties.getNotificationQueueCapacity()),
+            AdyenExecutors.newThreadFactory(
+                "adyen-notification", adyenConfigProperties.isVirtualThreads()));
+    this.itemWorkers =
+        AdyenExecutors.newExecutor(
+            "adyen-notification-item",
+            adyenConfigProperties.getNotificationItemWorkers(),
+            adyenConfigProperties.isVirtualThreads());
+    this.sweeper =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("adyen-notification-sweeper")
+                .setDaemon(true)
+                .build());
+  }
+
+  public void start() {
+    sweeper.scheduleWithFixedDelay(
+        this::sweep, retryDelaySeconds, retryDelaySeconds, TimeUnit.SECONDS);
+  }
+
+  public void stop() {
+    sweeper.shutdownNow();
+    workers.shutdown();
+    try {
+      if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        // Unfinished notifications are still in the database and picked up on the next start
+        workers.shutdownNow();
+      }
+    } catch (final InterruptedException e) {
+      workers.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    itemWorkers.shutdownNow();
+  }
+
+  /** Persists the notification and schedules it, returns once it is safe to ack Adyen. */
+  public void enqueue(final String notification) throws SQLException {
+    final ULong recordId = adyenDao.enqueueNotification(notification);
+    submit(recordId, notification);
+  }
+
+  public int getPendingCount() {
+    return workers.getQueue().size();
+  }
+
+  void sweep() {
+    try {
+      final int capacity = workers.getQueue().remainingCapacity();
+      if (capacity == 0) {
+        return;
+      }
+      final DateTime now = DateTime.now();
+      final List<AdyenNotificationsQueueRecord> records =
+          adyenDao.getQueuedNotificationsToProcess(
+              now.minusSeconds(retryDelaySeconds), now.minusSeconds(staleSeconds), capacity);
+      for (final AdyenNotificationsQueueRecord record : records) {
+        submit(record.getRecordId(), record.getBody());
+      }
+    } catch (final Exception e) {
+      logger.warn("Unable to sweep the notification queue", e);
+    }
+  }
+
+  private void submit(final ULong recordId, final String notification) {
+    try {
+      workers.execute(() -> process(recordId, notification));
+    } catch (final RejectedExecutionException e) {
+      // The row stays PENDING, the sweeper resubmits it once the pool drains
+      logger.debug("Notification queue is full, deferring notification {}", recordId);
+    }
+  }
+
+  private void process(final ULong recordId, final String notification) {
+    try {
+      if (!adyenDao.claimQueuedNotification(
+          recordId, DateTime.now().minusSeconds(staleSeconds))) {
+        // Already handled by another worker
+        return;
+      }
+    } catch (final SQLException e) {
+      logger.warn("Unable to claim notification {}", recordId, e);
+      return;
+    }
+
+    try {
+      final List<NotificationItemOutcome> outcomes = processor.process(notification, itemWorkers);
+      final long failed = outcomes.stream().filter(NotificationItemOutcome.FAILED::equals).count();
+      if (failed == 0) {
+        adyenDao.completeQueuedNotification(recordId);
+      } else {
+        // The whole batch is retried, items already applied are applied again
+        adyenDao.failQueuedNotification(
+            recordId,
+            String.format("%d of %d notification items failed", failed, outcomes.size()),
+            maxAttempts);
+      }
+    } catch (final Exception e) {
+      logger.warn("Unable to process notification {}", recordId, e);
+      try {
+        adyenDao.failQueuedNotification(recordId, e.toString(), maxAttempts);
+      } catch (final SQLException sqle) {
+        logger.error("Unable to record failure of notification {}", recordId, sqle);
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.adyen.model.Amount;
+import com.adyen.model.notification.NotificationRequestItem;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads an Adyen notification batch with the Jackson streaming API and hands every {@link
+ * NotificationRequestItem} to a consumer as soon as it is parsed. Unlike {@code
+ * NotificationHandler}, no list of every item of the batch is built: the first items can be
+ * processed while the rest of the body is still being parsed. The body itself is not streamed, the
+ * servlet and the queue hand it over as a String.
+ *
+ * <p>Fields the plugin does not know about are skipped, as the SDK does.
+ */
+public final class NotificationItemReader {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String NOTIFICATION_ITEMS = "notificationItems";
+  private static final String NOTIFICATION_REQUEST_ITEM = "NotificationRequestItem";
+
+  private NotificationItemReader() {}
+
+  /** @return the number of items handed to {@code consumer} */
+  public static int read(final Reader reader, final Consumer<NotificationRequestItem> consumer)
+      throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(reader)) {
+      return read(parser, consumer);
+    }
+  }
+
+  private static int read(final JsonParser parser, final Consumer<NotificationRequestItem> consumer)
+      throws IOException {
+    if (parser.nextToken() == null) {
+      return 0;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    int count = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      final JsonToken value = parser.nextToken();
+      if (NOTIFICATION_ITEMS.equals(field) && value == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          count += readContainer(parser, consumer);
+        }
+        expect(parser, JsonToken.END_ARRAY);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    expect(parser, JsonToken.END_OBJECT);
+    return count;
+  }
+
+  /** Reads one {@code {"NotificationRequestItem": {...}}} element of the array. */
+  private static int readContainer(
+      final JsonParser parser, final Consumer<NotificationRequestItem> consumer)
+      throws IOException {
+    int count = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      final JsonToken value = parser.nextToken();
+      if (NOTIFICATION_REQUEST_ITEM.equals(field) && value == JsonToken.START_OBJECT) {
+        consumer.accept(readItem(parser));
+        count++;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    expect(parser, JsonToken.END_OBJECT);
+    return count;
+  }
+
+  private static NotificationRequestItem readItem(final JsonParser parser) throws IOException {
+    final NotificationRequestItem item = new NotificationRequestItem();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      final JsonToken value = parser.nextToken();
+      switch (field) {
+        case "additionalData":
+          item.setAdditionalData(readStringMap(parser, value));
+          break;
+        case "amount":
+          item.setAmount(readAmount(parser, value));
+          break;
+        case "eventCode":
+          item.setEventCode(readString(parser, value));
+          break;
+        case "eventDate":
+          item.setEventDate(readDate(parser, value));
+          break;
+        case "merchantAccountCode":
+          item.setMerchantAccountCode(readString(parser, value));
+          break;
+        case "merchantReference":
+          item.setMerchantReference(readString(parser, value));
+          break;
+        case "originalReference":
+          item.setOriginalReference(readString(parser, value));
+          break;
+        case "paymentMethod":
+          item.setPaymentMethod(readString(parser, value));
+          break;
+        case "pspReference":
+          item.setPspReference(readString(parser, value));
+          break;
+        case "reason":
+          item.setReason(readString(parser, value));
+          break;
+        case "success":
+          // Adyen sends "true" and "false" as strings
+          item.setSuccess(Boolean.parseBoolean(readString(parser, value)));
+          break;
+        case "operations":
+          item.setOperations(readStringList(parser, value));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    expect(parser, JsonToken.END_OBJECT);
+    return item;
+  }
+
+  private static String readString(final JsonParser parser, final JsonToken value)
+      throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (value.isStructStart()) {
+      throw new JsonParseException(parser, "Expected a scalar value, got " + value);
+    }
+    return parser.getValueAsString();
+  }
+
+  private static Date readDate(final JsonParser parser, final JsonToken value)
+      throws IOException {
+    final String text = readString(parser, value);
+    if (text == null || text.isEmpty()) {
+      return null;
+    }
+    try {
+      return Date.from(OffsetDateTime.parse(text).toInstant());
+    } catch (final DateTimeParseException e) {
+      throw new JsonParseException(parser, "Invalid eventDate " + text, e);
+    }
+  }
+
+  private static Amount readAmount(final JsonParser parser, final JsonToken value)
+      throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    final Amount amount = new Amount();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      final JsonToken fieldValue = parser.nextToken();
+      if ("currency".equals(field)) {
+        amount.setCurrency(readString(parser, fieldValue));
+      } else if ("value".equals(field) && fieldValue != JsonToken.VALUE_NULL) {
+        amount.setValue(parser.getValueAsLong());
+      } else {
+        parser.skipChildren();
+      }
+    }
+    expect(parser, JsonToken.END_OBJECT);
+    return amount;
+  }
+
+  private static Map<String, String> readStringMap(final JsonParser parser, final JsonToken value)
+      throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_OBJECT);
+    final Map<String, String> map = new HashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      map.put(field, readString(parser, parser.nextToken()));
+    }
+    expect(parser, JsonToken.END_OBJECT);
+    return map;
+  }
+
+  private static List<String> readStringList(final JsonParser parser, final JsonToken value)
+      throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    expect(parser, JsonToken.START_ARRAY);
+    final List<String> list = new ArrayList<>();
+    JsonToken element;
+    while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+      list.add(readString(parser, element));
+    }
+    return list;
+  }
+
+  private static void expect(final JsonParser parser, final JsonToken expected)
+      throws JsonParseException {
+    if (parser.currentToken() != expected) {
+      throw new JsonParseException(
+          parser, "Expected " + expected + ", got " + parser.currentToken());
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.adyen.core;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import org.apache.shiro.subject.Subject;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs Kill Bill API calls as the plugin user configured for a tenant. Rather than a login (and a
+ * password hash check) around every call, the Shiro subject of each tenant is logged in once and
+ * bound to the calling thread for the duration of a call, so the calls stay on the request thread.
+ * The subject is logged in again once its login is older than {@code checkoutLoginTtlSeconds} or
+ * when it is no longer authenticated.
+ *
+ * <p>Like {@code GatewayProcessorRegistry}, the subject of a tenant is replaced when the
+ * configuration handler hands out a new configuration for it, e.g. after a change of credentials.
+ */
+public class TenantSubjectCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(TenantSubjectCache.class);
+
+  // ConcurrentHashMap does not accept null keys, the default configuration is stored under this one
+  private static final UUID DEFAULT_TENANT_KEY = new UUID(0L, 0L);
+
+  private final OSGIKillbillAPI killbillAPI;
+  private final AdyenConfigurationHandler adyenConfigurationHandler;
+  private final LongSupplier nanoClock;
+  private final ConcurrentMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+  public TenantSubjectCache(
+      final OSGIKillbillAPI killbillAPI,
+      final AdyenConfigurationHandler adyenConfigurationHandler) {
+    this(killbillAPI, adyenConfigurationHandler, System::nanoTime);
+  }
+
+  TenantSubjectCache(
+      final OSGIKillbillAPI killbillAPI,
+      final AdyenConfigurationHandler adyenConfigurationHandler,
+      final LongSupplier nanoClock) {
+    this.killbillAPI = killbillAPI;
+    this.adyenConfigurationHandler = adyenConfigurationHandler;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Runs {@code task} on the calling thread, with the subject logged in with the credentials of
+   * the tenant bound to it. The subject previously bound to the thread, if any, is restored
+   * afterwards. The exception thrown by the task, or by the login, is rethrown as is.
+   */
+  public <T> T call(@Nullable final UUID kbTenantId, final Callable<T> task) throws Exception {
+    final Entry entry = get(kbTenantId);
+    if (entry.loginTtlNanos > 0) {
+      return entry.subject().associateWith(task).call();
+    }
+    final Subject subject = entry.login();
+    try {
+      return subject.associateWith(task).call();
+    } finally {
+      logout(subject);
+    }
+  }
+
+  public void close() {
+    synchronized (entries) {
+      for (final Entry entry : entries.values()) {
+        entry.logout();
+      }
+      entries.clear();
+    }
+  }
+
+  private Entry get(@Nullable final UUID kbTenantId) {
+    final AdyenConfigProperties current = adyenConfigurationHandler.getConfigurable(kbTenantId);
+    final UUID key = kbTenantId == null ? DEFAULT_TENANT_KEY : kbTenantId;
+
+    final Entry existing = entries.get(key);
+    if (existing != null && existing.configuration == current) {
+      return existing;
+    }
+
+    synchronized (entries) {
+      final Entry latest = entries.get(key);
+      if (latest != null && latest.configuration == current) {
+        return latest;
+      }
+      final Entry created = new Entry(current, latest);
+      entries.put(key, created);
+      return created;
+    }
+  }
+
+  private static void logout(@Nullable final Subject subject) {
+    if (subject == null) {
+      return;
+    }
+    try {
+      subject.logout();
+    } catch (final RuntimeException e) {
+      // The session may have expired already
+      logger.debug("Unable to log out the checkout subject", e);
+    }
+  }
+
+  private final class Entry {
+
+    private final AdyenConfigProperties configuration;
+    private final long loginTtlNanos;
+
+    private volatile Subject subject;
+    private volatile long loggedInAt;
+    // Replaced by the last login, calls which picked it up before may still use it. It is logged
+    // out when the next login replaces the current subject, so a TTL later.
+    @Nullable private Subject previous;
+
+    private Entry(final AdyenConfigProperties configuration, @Nullable final Entry replaced) {
+      this.configuration = configuration;
+      this.loginTtlNanos = TimeUnit.SECONDS.toNanos(configuration.getCheckoutLoginTtlSeconds());
+      if (replaced != null) {
+        synchronized (replaced) {
+          logout(replaced.previous);
+          this.previous = replaced.subject;
+        }
+      }
+    }
+
+    private Subject subject() throws Exception {
+      final Subject current = subject;
+      if (isUsable(current)) {
+        return current;
+      }
+      synchronized (this) {
+        final Subject latest = subject;
+        if (isUsable(latest)) {
+          return latest;
+        }
+        final Subject created = login();
+        logout(previous);
+        previous = latest;
+        loggedInAt = nanoClock.getAsLong();
+        subject = created;
+        return created;
+      }
+    }
+
+    private boolean isUsable(@Nullable final Subject candidate) {
+      return candidate != null
+          && nanoClock.getAsLong() - loggedInAt < loginTtlNanos
+          && candidate.isAuthenticated();
+    }
+
+    /** Logs in a new subject, the one bound to the calling thread is left untouched. */
+    private Subject login() throws Exception {
+      final Subject created = new Subject.Builder().buildSubject();
+      created
+          .associateWith(
+              () -> {
+                // Logs in the subject bound to the thread, the one just built
+                killbillAPI
+                    .getSecurityApi()
+                    .login(configuration.getUsername(), configuration.getPassword());
+                return null;
+              })
+          .call();
+      return created;
+    }
+
+    private synchronized void logout() {
+      TenantSubjectCache.logout(previous);
+      TenantSubjectCache.logout(subject);
+      previous = null;
+      subject = null;
+    }
+  }
+}
@@ -34,7 +34,7 @@ import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
-import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+import org.killbill.billing.plugin.adyen.core.TenantSubjectCache;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,25 +42,34 @@ import org.slf4j.LoggerFactory;
 public class AdyenCheckoutService {
   private static final Logger logger = LoggerFactory.getLogger(AdyenCheckoutService.class);
   public static final String IS_CHECKOUT = "isCheckout";
-  private OSGIKillbillAPI killbillAPI;
+  private final OSGIKillbillAPI killbillAPI;
 
-  private AdyenConfigurationHandler adyenConfigurationHandler;
+  private final TenantSubjectCache tenantSubjectCache;
 
   public AdyenCheckoutService(
-      OSGIKillbillAPI killbillAPI, AdyenConfigurationHandler adyenConfigurationHandler) {
+      final OSGIKillbillAPI killbillAPI, final TenantSubjectCache tenantSubjectCache) {
     this.killbillAPI = killbillAPI;
-    this.adyenConfigurationHandler = adyenConfigurationHandler;
+    this.tenantSubjectCache = tenantSubjectCache;
   }
 
   public Map<String, String> createSession(
       UUID kbAccountId, CallContext context, BigDecimal amount, UUID paymentMethodId, UUID tenantId)
       throws PaymentPluginApiException {
+    try {
+      // The Kill Bill calls run as the plugin user of the tenant, already logged in
+      return tenantSubjectCache.call(
+          tenantId, () -> createPurchase(kbAccountId, context, amount, paymentMethodId));
+    } catch (final PaymentPluginApiException e) {
+      throw e;
+    } catch (final Exception e) {
+      logger.error("Unable to create a checkout session {}", e.getMessage(), e);
+      throw new PaymentPluginApiException(INTERNAL, e.getMessage());
+    }
+  }
 
-    killbillAPI
-        .getSecurityApi()
-        .login(
-            adyenConfigurationHandler.getConfigurable(tenantId).getUsername(),
-            adyenConfigurationHandler.getConfigurable(tenantId).getPassword());
+  private Map<String, String> createPurchase(
+      UUID kbAccountId, CallContext context, BigDecimal amount, UUID paymentMethodId)
+      throws PaymentPluginApiException {
     Account kbAccount = null;
     Payment payment = null;
     try {
@@ -99,7 +108,6 @@ public class AdyenCheckoutService {
     Map<String, String> formFields = new HashMap<>();
     formFields.put("sessionId", paymentInfo.getFirstPaymentReferenceId());
     formFields.put(SESSION_DATA, paymentInfo.getProperties().get(0).getValue().toString());
-    killbillAPI.getSecurityApi().logout();
     return formFields;
   }
 }
@@ -17,20 +17,16 @@
 package org.killbill.billing.plugin.adyen.core.resources;
 
 import com.google.inject.Inject;
-import java.util.UUID;
+import java.sql.SQLException;
 import javax.inject.Singleton;
 import org.jooby.Result;
 import org.jooby.Results;
 import org.jooby.mvc.Body;
 import org.jooby.mvc.POST;
 import org.jooby.mvc.Path;
-import org.killbill.billing.osgi.libs.killbill.OSGIKillbillClock;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
-import org.killbill.billing.plugin.adyen.api.AdyenPaymentPluginApi;
-import org.killbill.billing.plugin.adyen.core.AdyenActivator;
-import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.adyen.core.AdyenNotificationQueue;
 import org.killbill.billing.plugin.core.resources.PluginHealthcheck;
-import org.killbill.billing.util.callcontext.CallContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,27 +34,23 @@ import org.slf4j.LoggerFactory;
 @Path("/notification")
 public class AdyenNotificationServlet extends PluginHealthcheck {
   private static final Logger logger = LoggerFactory.getLogger(AdyenNotificationServlet.class);
-  private final OSGIKillbillClock clock;
-  private final AdyenPaymentPluginApi adyenPaymentPluginApi;
+  private final AdyenNotificationQueue notificationQueue;
 
   @Inject
-  public AdyenNotificationServlet(
-      final OSGIKillbillClock clock, final AdyenPaymentPluginApi adyenPaymentPluginApi) {
-    this.clock = clock;
-    this.adyenPaymentPluginApi = adyenPaymentPluginApi;
+  public AdyenNotificationServlet(final AdyenNotificationQueue notificationQueue) {
+    this.notificationQueue = notificationQueue;
   }
 
   @POST
   public Result notificate(@Body String body) throws PaymentPluginApiException {
     logger.info("start notificate");
-    final CallContext context =
-        new PluginCallContext(
-            AdyenActivator.PLUGIN_NAME,
-            clock.getClock().getUTCNow(),
-            UUID.randomUUID(),
-            UUID.randomUUID());
-    logger.info("start result of notificate");
+    try {
+      notificationQueue.enqueue(body);
+    } catch (final SQLException e) {
+      // Not acked, Adyen will deliver the notification again
+      throw new PaymentPluginApiException("Unable to store notification", e);
+    }
 
-    return Results.ok(adyenPaymentPluginApi.processNotification(body, null, context).getEntity());
+    return Results.ok("[accepted]");
   }
 }
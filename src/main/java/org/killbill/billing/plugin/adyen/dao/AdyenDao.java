@@ -17,24 +17,40 @@
 package org.killbill.billing.plugin.adyen.dao;
 
 import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotifications.ADYEN_NOTIFICATIONS;
+import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE;
 import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenPaymentMethods.ADYEN_PAYMENT_METHODS;
 import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses.ADYEN_RESPONSES;
 
 import com.adyen.model.notification.NotificationRequestItem;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import org.joda.time.DateTime;
+import org.jooq.Condition;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
@@ -42,7 +58,7 @@ import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
 import org.killbill.billing.plugin.adyen.client.exceptions.FormaterException;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenPaymentMethods;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses;
-import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsRecord;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsQueueRecord;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenPaymentMethodsRecord;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
 import org.killbill.billing.plugin.dao.payment.PluginPaymentDao;
@@ -51,10 +67,78 @@ public class AdyenDao
     extends PluginPaymentDao<
         AdyenResponsesRecord, AdyenResponses, AdyenPaymentMethodsRecord, AdyenPaymentMethods> {
 
+  public static final String QUEUE_STATE_PENDING = "PENDING";
+  public static final String QUEUE_STATE_PROCESSING = "PROCESSING";
+  public static final String QUEUE_STATE_FAILED = "FAILED";
+
+  private static final int MAX_QUEUE_ERROR_LENGTH = 1024;
+
+  public static final long DEFAULT_PAYMENT_METHOD_CACHE_TTL_SECONDS = 30;
+  public static final long DEFAULT_PAYMENT_METHOD_CACHE_MAX_SIZE = 10000;
+
+  public static final long PROCESSED_NOTIFICATION_CACHE_MAX_SIZE = 10000;
+
+  private static final String NOTIFICATION_UNIQUE_INDEX =
+      "adyen_notifications_psp_reference_event_code_success";
+  // SQLSTATE class 23
+  private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+  private final Cache<String, AdyenPaymentMethodsRecord> paymentMethodsCache;
+  // Most recently stored notification items, in front of the unique index of adyen_notifications
+  private final Cache<String, Boolean> processedNotifications;
+
+  /** Statements run by a unit of work share one connection and one transaction. */
+  public interface UnitOfWork<T> {
+
+    T run(DSLContext dslContext) throws SQLException;
+  }
+
   public AdyenDao(final DataSource dataSource) throws SQLException {
+    this(
+        dataSource,
+        DEFAULT_PAYMENT_METHOD_CACHE_TTL_SECONDS,
+        DEFAULT_PAYMENT_METHOD_CACHE_MAX_SIZE);
+  }
+
+  public AdyenDao(
+      final DataSource dataSource,
+      final long paymentMethodCacheTtlSeconds,
+      final long paymentMethodCacheMaxSize)
+      throws SQLException {
     super(ADYEN_RESPONSES, ADYEN_PAYMENT_METHODS, dataSource);
     // Save space in the database
     objectMapper.setSerializationInclusion(Include.NON_EMPTY);
+    this.paymentMethodsCache =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(paymentMethodCacheTtlSeconds, TimeUnit.SECONDS)
+            .maximumSize(paymentMethodCacheMaxSize)
+            .recordStats()
+            .build();
+    this.processedNotifications =
+        CacheBuilder.newBuilder().maximumSize(PROCESSED_NOTIFICATION_CACHE_MAX_SIZE).build();
+  }
+
+  /**
+   * Runs {@code work} on a single connection borrowed from the pool, in one transaction which is
+   * rolled back if the work fails.
+   */
+  public <T> T inTransaction(final UnitOfWork<T> work) throws SQLException {
+    try {
+      return execute(
+          dataSource.getConnection(),
+          new WithConnectionCallback<T>() {
+            @Override
+            public T withConnection(final Connection conn) {
+              return DSL.using(conn, dialect, settings)
+                  .transactionResult(configuration -> work.run(DSL.using(configuration)));
+            }
+          });
+    } catch (final DataAccessException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw e;
+    }
   }
 
   // Payment methods
@@ -101,6 +185,7 @@ public class AdyenDao
             return null;
           }
         });
+    paymentMethodsCache.invalidate(kbPaymentMethodId.toString());
   }
 
   public void updateIsDeletePaymentMethod(final UUID kbPaymentMethodId, final UUID kbTenantId)
@@ -123,6 +208,14 @@ public class AdyenDao
             return null;
           }
         });
+    paymentMethodsCache.invalidate(kbPaymentMethodId.toString());
+  }
+
+  @Override
+  public void deletePaymentMethod(final UUID kbPaymentMethodId, final UUID kbTenantId)
+      throws SQLException {
+    super.deletePaymentMethod(kbPaymentMethodId, kbTenantId);
+    paymentMethodsCache.invalidate(kbPaymentMethodId.toString());
   }
 
   public void updateRecurringDetailsPaymentMethod(
@@ -135,62 +228,79 @@ public class AdyenDao
           public AdyenPaymentMethodsRecord withConnection(final Connection conn)
               throws SQLException {
 
-            DSL.using(conn, dialect, settings)
-                .update(ADYEN_PAYMENT_METHODS)
-                .set(ADYEN_PAYMENT_METHODS.RECURRING_DETAIL_REFERENCE, recurringData)
-                .where(
-                    ADYEN_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(kbPaymentMethodId.toString()))
-                .and(ADYEN_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+            updateRecurringDetailsPaymentMethodQuery(
+                    DSL.using(conn, dialect, settings),
+                    kbPaymentMethodId,
+                    kbTenantId,
+                    recurringData)
                 .execute();
             return null;
           }
         });
+    paymentMethodsCache.invalidate(kbPaymentMethodId.toString());
+  }
+
+  private Query updateRecurringDetailsPaymentMethodQuery(
+      final DSLContext dslContext,
+      final UUID kbPaymentMethodId,
+      final UUID kbTenantId,
+      final String recurringData) {
+    return dslContext
+        .update(ADYEN_PAYMENT_METHODS)
+        .set(ADYEN_PAYMENT_METHODS.RECURRING_DETAIL_REFERENCE, recurringData)
+        .where(ADYEN_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(kbPaymentMethodId.toString()))
+        .and(ADYEN_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()));
   }
 
-  public void updateResponse(UUID kbPaymentId, ProcessorOutputDTO outputDTO, UUID tenantId)
+  /** Updates the single response of a transaction, the one a notification refers to. */
+  public void updateTransactionResponse(
+      final UUID kbPaymentTransactionId, final ProcessorOutputDTO outputDTO, final UUID tenantId)
       throws SQLException {
     execute(
         dataSource.getConnection(),
-        new WithConnectionCallback<AdyenResponsesRecord>() {
+        new WithConnectionCallback<Void>() {
           @Override
-          public AdyenResponsesRecord withConnection(final Connection conn) throws SQLException {
-
-            DSL.using(conn, dialect, settings)
-                .update(ADYEN_RESPONSES)
-                .set(ADYEN_RESPONSES.PSP_REFERENCE, outputDTO.getPspReferenceCode())
-                .set(ADYEN_RESPONSES.TRANSACTION_STATUS, outputDTO.getStatus().name())
-                .where(ADYEN_RESPONSES.KB_PAYMENT_ID.equal(kbPaymentId.toString()))
-                .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(tenantId.toString()))
+          public Void withConnection(final Connection conn) throws SQLException {
+            updateTransactionResponseQuery(
+                    DSL.using(conn, dialect, settings), kbPaymentTransactionId, outputDTO, tenantId)
                 .execute();
             return null;
           }
         });
   }
 
+  private Query updateTransactionResponseQuery(
+      final DSLContext dslContext,
+      final UUID kbPaymentTransactionId,
+      final ProcessorOutputDTO outputDTO,
+      final UUID tenantId) {
+    return dslContext
+        .update(ADYEN_RESPONSES)
+        .set(ADYEN_RESPONSES.PSP_REFERENCE, outputDTO.getPspReferenceCode())
+        .set(ADYEN_RESPONSES.TRANSACTION_STATUS, outputDTO.getStatus().name())
+        .where(ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbPaymentTransactionId.toString()))
+        .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(tenantId.toString()));
+  }
+
   public AdyenPaymentMethodsRecord getPaymentMethodsByMethodId(final UUID paymentMethodId)
       throws SQLException {
-    return execute(
-        dataSource.getConnection(),
-        new WithConnectionCallback<AdyenPaymentMethodsRecord>() {
-          @Override
-          public AdyenPaymentMethodsRecord withConnection(final Connection conn)
-              throws SQLException {
-            final List<AdyenPaymentMethodsRecord> response =
-                DSL.using(conn, dialect, settings)
-                    .selectFrom(ADYEN_PAYMENT_METHODS)
-                    .where(
-                        ADYEN_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(
-                            paymentMethodId.toString()))
-                    .and(ADYEN_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
-                    .orderBy(ADYEN_PAYMENT_METHODS.RECORD_ID.desc())
-                    .fetch();
-
-            if (response.isEmpty()) {
-              throw new SQLException();
-            }
-            return response.get(0);
-          }
-        });
+    final AdyenPaymentMethodsRecord record = getCachedPaymentMethod(paymentMethodId.toString());
+    if (record == null || isDeleted(record)) {
+      throw new SQLException();
+    }
+    return record;
+  }
+
+  @Override
+  public AdyenPaymentMethodsRecord getPaymentMethod(
+      final UUID kbPaymentMethodId, final UUID kbTenantId) throws SQLException {
+    final AdyenPaymentMethodsRecord record = getCachedPaymentMethod(kbPaymentMethodId.toString());
+    if (record == null
+        || isDeleted(record)
+        || !kbTenantId.toString().equals(record.getKbTenantId())) {
+      return null;
+    }
+    return record;
   }
 
   // Responses
@@ -246,6 +356,7 @@ public class AdyenDao
       UUID kbAccountId,
       UUID kbPaymentId,
       UUID kbTransactionId,
+      @Nullable UUID kbPaymentMethodId,
       TransactionType transactionType,
       BigDecimal amount,
       Currency currency,
@@ -278,7 +389,8 @@ public class AdyenDao
                     ADYEN_RESPONSES.CURRENCY,
                     ADYEN_RESPONSES.ADDITIONAL_DATA,
                     ADYEN_RESPONSES.CREATED_DATE,
-                    ADYEN_RESPONSES.KB_TENANT_ID)
+                    ADYEN_RESPONSES.KB_TENANT_ID,
+                    ADYEN_RESPONSES.KB_PAYMENT_METHOD_ID)
                 .values(
                     kbAccountId.toString(),
                     kbPaymentId.toString(),
@@ -293,21 +405,164 @@ public class AdyenDao
                         ? (asString(outputDTO.getAdditionalData()))
                         : null,
                     toLocalDateTime(DateTime.now()),
-                    tenantId.toString())
+                    tenantId.toString(),
+                    kbPaymentMethodId != null ? kbPaymentMethodId.toString() : null)
                 .returning()
                 .fetchOne();
           }
         });
   }
 
-  public AdyenNotificationsRecord addNotification(
-      UUID kbAccountId,
-      UUID kbPaymentId,
-      UUID kbTransactionId,
-      NotificationRequestItem item,
-      UUID tenantId)
-      throws SQLException {
-    String tempCurrency =
+  /**
+   * Applies the notification items of a webhook batch in a single transaction: the response
+   * updates, notification inserts and recurring detail updates are sent as one JDBC batch, in the
+   * order of the items.
+   *
+   * <p>If another node stored one of the items since it was checked, the unique index rejects the
+   * batch and the transaction is rolled back; the batch is then applied again without the items
+   * which are now stored. Any other failure is thrown as is.
+   */
+  public void addNotifications(final List<NotificationUpdate> updates) throws SQLException {
+    if (updates.isEmpty()) {
+      return;
+    }
+    try {
+      inTransaction(
+          dslContext -> {
+            dslContext.batch(addNotificationsQueries(dslContext, updates)).execute();
+            return null;
+          });
+    } catch (final SQLException | DataAccessException e) {
+      if (!isDuplicateNotification(e)) {
+        throw e;
+      }
+      inTransaction(
+          dslContext -> {
+            final List<NotificationUpdate> remaining = new ArrayList<>(updates.size());
+            for (final NotificationUpdate update : updates) {
+              if (!isNotificationProcessed(dslContext, update.getItem())) {
+                remaining.add(update);
+              }
+            }
+            if (!remaining.isEmpty()) {
+              dslContext.batch(addNotificationsQueries(dslContext, remaining)).execute();
+            }
+            return null;
+          });
+    }
+    for (final NotificationUpdate update : updates) {
+      if (update.getKbPaymentMethodId() != null) {
+        paymentMethodsCache.invalidate(update.getKbPaymentMethodId().toString());
+      }
+      final String key = processedNotificationKey(update.getItem());
+      if (key != null) {
+        processedNotifications.put(key, Boolean.TRUE);
+      }
+    }
+  }
+
+  private List<Query> addNotificationsQueries(
+      final DSLContext dslContext, final List<NotificationUpdate> updates) {
+    final List<Query> queries = new ArrayList<>(updates.size() * 3);
+    for (final NotificationUpdate update : updates) {
+      // Only the transaction of the notification, not every transaction of the payment
+      queries.add(
+          updateTransactionResponseQuery(
+              dslContext,
+              update.getKbPaymentTransactionId(),
+              update.getOutputDTO(),
+              update.getKbTenantId()));
+      queries.add(
+          addNotificationQuery(
+              dslContext,
+              update.getKbAccountId(),
+              update.getKbPaymentId(),
+              update.getKbPaymentTransactionId(),
+              update.getItem(),
+              update.getKbTenantId()));
+      if (update.getKbPaymentMethodId() != null && update.getRecurringDetailReference() != null) {
+        queries.add(
+            updateRecurringDetailsPaymentMethodQuery(
+                dslContext,
+                update.getKbPaymentMethodId(),
+                update.getKbTenantId(),
+                update.getRecurringDetailReference()));
+      }
+    }
+    return queries;
+  }
+
+  /**
+   * Whether {@code e} is an integrity constraint violation of the notification unique index. The
+   * drivers only name the index in the message, for batches possibly in a chained exception.
+   */
+  private static boolean isDuplicateNotification(final Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        for (SQLException next = (SQLException) cause;
+            next != null;
+            next = next.getNextException()) {
+          if (next.getSQLState() != null
+              && next.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)
+              && next.getMessage() != null
+              && next.getMessage().toLowerCase(Locale.ROOT).contains(NOTIFICATION_UNIQUE_INDEX)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether an item with the same psp reference, event code and success flag is already stored,
+   * i.e. Adyen is delivering it again. Items stored recently are answered from memory, the others
+   * by the unique index.
+   */
+  public boolean isNotificationProcessed(
+      final DSLContext dslContext, final NotificationRequestItem item) {
+    final String key = processedNotificationKey(item);
+    if (key == null) {
+      return false;
+    }
+    if (processedNotifications.getIfPresent(key) != null) {
+      return true;
+    }
+    final boolean stored =
+        dslContext.fetchExists(
+            dslContext
+                .selectOne()
+                .from(ADYEN_NOTIFICATIONS)
+                .where(DSL.field(ADYEN_NOTIFICATIONS.PSP_REFERENCE).equal(item.getPspReference()))
+                .and(DSL.field(ADYEN_NOTIFICATIONS.EVENT_CODE).equal(item.getEventCode()))
+                .and(DSL.field(ADYEN_NOTIFICATIONS.SUCCESS).equal(toSuccess(item))));
+    if (stored) {
+      processedNotifications.put(key, Boolean.TRUE);
+    }
+    return stored;
+  }
+
+  /** Null when the unique index cannot tell the item apart from another one. */
+  @Nullable
+  private static String processedNotificationKey(final NotificationRequestItem item) {
+    if (item.getPspReference() == null || item.getEventCode() == null) {
+      return null;
+    }
+    return item.getPspReference() + ':' + item.getEventCode() + ':' + toSuccess(item);
+  }
+
+  private static Short toSuccess(final NotificationRequestItem item) {
+    return (short) (item.isSuccess() ? 1 : 0);
+  }
+
+  private Query addNotificationQuery(
+      final DSLContext dslContext,
+      final UUID kbAccountId,
+      final UUID kbPaymentId,
+      final UUID kbTransactionId,
+      final NotificationRequestItem item,
+      final UUID tenantId) {
+    final String dbCurrency =
         (item.getAmount().getCurrency() != null)
             ? Currency.fromCode(item.getAmount().getCurrency()).toString()
             : null;
@@ -316,52 +571,41 @@ public class AdyenDao
         (item.getAmount().getDecimalValue() != null)
             ? new BigDecimal(item.getAmount().getDecimalValue().toString())
             : null;
-    final String dbCurrency = tempCurrency;
-    Short success = (short) (item.isSuccess() ? 1 : 0);
-    return execute(
-        dataSource.getConnection(),
-        new WithConnectionCallback<AdyenNotificationsRecord>() {
-          @Override
-          public AdyenNotificationsRecord withConnection(final Connection conn)
-              throws SQLException {
-            return DSL.using(conn, dialect, settings)
-                .insertInto(
-                    ADYEN_NOTIFICATIONS,
-                    ADYEN_NOTIFICATIONS.KB_ACCOUNT_ID,
-                    ADYEN_NOTIFICATIONS.KB_PAYMENT_ID,
-                    ADYEN_NOTIFICATIONS.KB_PAYMENT_TRANSACTION_ID,
-                    ADYEN_NOTIFICATIONS.SUCCESS,
-                    ADYEN_NOTIFICATIONS.EVENT_CODE,
-                    ADYEN_NOTIFICATIONS.MERCHANT_ACCOUNT_CODE,
-                    ADYEN_NOTIFICATIONS.MERCHANT_REFERENCE,
-                    ADYEN_NOTIFICATIONS.ORIGINAL_REFERENCE,
-                    ADYEN_NOTIFICATIONS.REASON,
-                    ADYEN_NOTIFICATIONS.PSP_REFERENCE,
-                    ADYEN_NOTIFICATIONS.AMOUNT,
-                    ADYEN_NOTIFICATIONS.CURRENCY,
-                    ADYEN_NOTIFICATIONS.CREATED_DATE,
-                    ADYEN_NOTIFICATIONS.ADDITIONAL_DATA,
-                    ADYEN_NOTIFICATIONS.KB_TENANT_ID)
-                .values(
-                    kbAccountId.toString(),
-                    kbPaymentId.toString(),
-                    kbTransactionId.toString(),
-                    success,
-                    item.getEventCode(),
-                    item.getMerchantAccountCode(),
-                    item.getMerchantReference(),
-                    item.getOriginalReference(),
-                    item.getReason(),
-                    item.getPspReference(),
-                    dbAmount,
-                    dbCurrency,
-                    toLocalDateTime(DateTime.now()),
-                    item.getAdditionalData() != null ? (asString(item.getAdditionalData())) : null,
-                    tenantId.toString())
-                .returning()
-                .fetchOne();
-          }
-        });
+    final Short success = toSuccess(item);
+    return dslContext
+        .insertInto(
+            ADYEN_NOTIFICATIONS,
+            ADYEN_NOTIFICATIONS.KB_ACCOUNT_ID,
+            ADYEN_NOTIFICATIONS.KB_PAYMENT_ID,
+            ADYEN_NOTIFICATIONS.KB_PAYMENT_TRANSACTION_ID,
+            ADYEN_NOTIFICATIONS.SUCCESS,
+            ADYEN_NOTIFICATIONS.EVENT_CODE,
+            ADYEN_NOTIFICATIONS.MERCHANT_ACCOUNT_CODE,
+            ADYEN_NOTIFICATIONS.MERCHANT_REFERENCE,
+            ADYEN_NOTIFICATIONS.ORIGINAL_REFERENCE,
+            ADYEN_NOTIFICATIONS.REASON,
+            ADYEN_NOTIFICATIONS.PSP_REFERENCE,
+            ADYEN_NOTIFICATIONS.AMOUNT,
+            ADYEN_NOTIFICATIONS.CURRENCY,
+            ADYEN_NOTIFICATIONS.CREATED_DATE,
+            ADYEN_NOTIFICATIONS.ADDITIONAL_DATA,
+            ADYEN_NOTIFICATIONS.KB_TENANT_ID)
+        .values(
+            kbAccountId.toString(),
+            kbPaymentId.toString(),
+            kbTransactionId.toString(),
+            success,
+            item.getEventCode(),
+            item.getMerchantAccountCode(),
+            item.getMerchantReference(),
+            item.getOriginalReference(),
+            item.getReason(),
+            item.getPspReference(),
+            dbAmount,
+            dbCurrency,
+            toLocalDateTime(DateTime.now()),
+            item.getAdditionalData() != null ? (asString(item.getAdditionalData())) : null,
+            tenantId.toString());
   }
 
   public AdyenResponsesRecord getSuccessfulPurchaseResponse(
@@ -389,18 +633,62 @@ public class AdyenDao
         new WithConnectionCallback<AdyenResponsesRecord>() {
           @Override
           public AdyenResponsesRecord withConnection(final Connection conn) throws SQLException {
-            return DSL.using(conn, dialect, settings)
-                .selectFrom(ADYEN_RESPONSES)
-                .where(
-                    DSL.field(ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID).equal(merchantReference))
-                .orderBy(ADYEN_RESPONSES.RECORD_ID)
-                .fetchOne();
+            return getResponseFromMerchantReference(
+                DSL.using(conn, dialect, settings), merchantReference);
           }
         });
   }
 
+  public AdyenResponsesRecord getResponseFromMerchantReference(
+      final DSLContext dslContext, final String merchantReference) {
+    return dslContext
+        .selectFrom(ADYEN_RESPONSES)
+        .where(DSL.field(ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID).equal(merchantReference))
+        .orderBy(ADYEN_RESPONSES.RECORD_ID.desc())
+        .limit(1)
+        .fetchOne();
+  }
+
   public AdyenPaymentMethodsRecord getPaymentMethod(final String kbPaymentMethodId)
       throws SQLException {
+    return getCachedPaymentMethod(kbPaymentMethodId);
+  }
+
+  public Map<String, Object> getPaymentMethodCacheMetrics() {
+    final CacheStats stats = paymentMethodsCache.stats();
+    final Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("paymentMethodCache.size", paymentMethodsCache.size());
+    metrics.put("paymentMethodCache.hitCount", stats.hitCount());
+    metrics.put("paymentMethodCache.missCount", stats.missCount());
+    metrics.put("paymentMethodCache.hitRate", stats.hitRate());
+    metrics.put("paymentMethodCache.evictionCount", stats.evictionCount());
+    return metrics;
+  }
+
+  /**
+   * Only the latest live row of a payment method is loaded, deleted and missing ones are not
+   * cached. Rows are cached whatever their tenant, callers check it. A lookup racing with a write
+   * can put back the previous row, the TTL bounds how long it is served.
+   */
+  private AdyenPaymentMethodsRecord getCachedPaymentMethod(final String kbPaymentMethodId)
+      throws SQLException {
+    final AdyenPaymentMethodsRecord cached = paymentMethodsCache.getIfPresent(kbPaymentMethodId);
+    if (cached != null) {
+      return cached;
+    }
+    final AdyenPaymentMethodsRecord record = loadPaymentMethod(kbPaymentMethodId);
+    if (record != null) {
+      paymentMethodsCache.put(kbPaymentMethodId, record);
+    }
+    return record;
+  }
+
+  private static boolean isDeleted(final AdyenPaymentMethodsRecord record) {
+    return record.getIsDeleted() != null && record.getIsDeleted() != (short) FALSE;
+  }
+
+  private AdyenPaymentMethodsRecord loadPaymentMethod(final String kbPaymentMethodId)
+      throws SQLException {
     return execute(
         dataSource.getConnection(),
         new WithConnectionCallback<AdyenPaymentMethodsRecord>() {
@@ -409,15 +697,27 @@ public class AdyenDao
               throws SQLException {
             return DSL.using(conn, dialect, settings)
                 .selectFrom(ADYEN_PAYMENT_METHODS)
-                .where(
-                    DSL.field(ADYEN_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID).equal(kbPaymentMethodId))
+                .where(ADYEN_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(kbPaymentMethodId))
+                .and(ADYEN_PAYMENT_METHODS.IS_DELETED.equal((short) FALSE))
+                .orderBy(ADYEN_PAYMENT_METHODS.RECORD_ID.desc())
+                .limit(1)
                 .fetchOne();
           }
         });
   }
 
-  public List<AdyenResponsesRecord> getSuccessfulPurchaseResponseList(
-      final UUID kbPaymentId, final UUID kbTenantId) throws SQLException {
+  /**
+   * One page of the responses of a payment, most recent first. Pass the record id of the last row
+   * of the previous page as {@code beforeRecordId}, null for the first page. The keyset on
+   * record_id keeps every page a short range scan of the (kb_payment_id, kb_tenant_id, record_id)
+   * index, however deep into the history it is.
+   */
+  public List<AdyenResponsesRecord> getResponsesPage(
+      final UUID kbPaymentId,
+      final UUID kbTenantId,
+      @Nullable final ULong beforeRecordId,
+      final int pageSize)
+      throws SQLException {
     return execute(
         dataSource.getConnection(),
         new WithConnectionCallback<List<AdyenResponsesRecord>>() {
@@ -426,9 +726,207 @@ public class AdyenDao
               throws SQLException {
             return DSL.using(conn, dialect, settings)
                 .selectFrom(ADYEN_RESPONSES)
-                .where(DSL.field(ADYEN_RESPONSES.KB_PAYMENT_ID).equal(kbPaymentId.toString()))
-                .and(DSL.field(ADYEN_RESPONSES.KB_TENANT_ID).equal(kbTenantId.toString()))
+                .where(responsesPageCondition(kbPaymentId, kbTenantId, beforeRecordId))
                 .orderBy(ADYEN_RESPONSES.RECORD_ID.desc())
+                .limit(pageSize)
+                .fetch();
+          }
+        });
+  }
+
+  /**
+   * Hands the responses of a payment to {@code consumer}, most recent first, without loading the
+   * whole history at once: pages of {@code pageSize} rows are read with the same keyset as {@link
+   * #getResponsesPage}, each through a lazy cursor, and released before the next one is read.
+   */
+  public void streamResponses(
+      final UUID kbPaymentId,
+      final UUID kbTenantId,
+      final int pageSize,
+      final Consumer<AdyenResponsesRecord> consumer)
+      throws SQLException {
+    // Record id of the last row handed to the consumer
+    final ULong[] lastRecordId = new ULong[1];
+    int read;
+    do {
+      read =
+          execute(
+              dataSource.getConnection(),
+              new WithConnectionCallback<Integer>() {
+                @Override
+                public Integer withConnection(final Connection conn) throws SQLException {
+                  int count = 0;
+                  try (Cursor<AdyenResponsesRecord> cursor =
+                      DSL.using(conn, dialect, settings)
+                          .selectFrom(ADYEN_RESPONSES)
+                          .where(responsesPageCondition(kbPaymentId, kbTenantId, lastRecordId[0]))
+                          .orderBy(ADYEN_RESPONSES.RECORD_ID.desc())
+                          .limit(pageSize)
+                          .fetchSize(pageSize)
+                          .fetchLazy()) {
+                    for (final AdyenResponsesRecord record : cursor) {
+                      consumer.accept(record);
+                      lastRecordId[0] = record.getRecordId();
+                      count++;
+                    }
+                  }
+                  return count;
+                }
+              });
+    } while (read == pageSize);
+  }
+
+  private static Condition responsesPageCondition(
+      final UUID kbPaymentId, final UUID kbTenantId, @Nullable final ULong beforeRecordId) {
+    final Condition condition =
+        ADYEN_RESPONSES
+            .KB_PAYMENT_ID
+            .equal(kbPaymentId.toString())
+            .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()));
+    return beforeRecordId == null
+        ? condition
+        : condition.and(ADYEN_RESPONSES.RECORD_ID.lessThan(beforeRecordId));
+  }
+
+  // Notification queue
+  public ULong enqueueNotification(final String body) throws SQLException {
+    return execute(
+        dataSource.getConnection(),
+        new WithConnectionCallback<ULong>() {
+          @Override
+          public ULong withConnection(final Connection conn) throws SQLException {
+            final LocalDateTime now = toLocalDateTime(DateTime.now());
+            return DSL.using(conn, dialect, settings)
+                .insertInto(
+                    ADYEN_NOTIFICATIONS_QUEUE,
+                    ADYEN_NOTIFICATIONS_QUEUE.BODY,
+                    ADYEN_NOTIFICATIONS_QUEUE.PROCESSING_STATE,
+                    ADYEN_NOTIFICATIONS_QUEUE.ATTEMPTS,
+                    ADYEN_NOTIFICATIONS_QUEUE.CREATED_DATE,
+                    ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE)
+                .values(body, QUEUE_STATE_PENDING, (short) 0, now, now)
+                .returning(ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID)
+                .fetchOne()
+                .getRecordId();
+          }
+        });
+  }
+
+  /**
+   * Marks a queued notification as being processed. Only one caller can win the claim, rows left
+   * in PROCESSING by a worker which died are claimable again once older than {@code staleBefore}.
+   */
+  public boolean claimQueuedNotification(final ULong recordId, final DateTime staleBefore)
+      throws SQLException {
+    return execute(
+        dataSource.getConnection(),
+        new WithConnectionCallback<Boolean>() {
+          @Override
+          public Boolean withConnection(final Connection conn) throws SQLException {
+            return DSL.using(conn, dialect, settings)
+                    .update(ADYEN_NOTIFICATIONS_QUEUE)
+                    .set(ADYEN_NOTIFICATIONS_QUEUE.PROCESSING_STATE, QUEUE_STATE_PROCESSING)
+                    .set(
+                        ADYEN_NOTIFICATIONS_QUEUE.ATTEMPTS,
+                        ADYEN_NOTIFICATIONS_QUEUE.ATTEMPTS.add(1))
+                    .set(ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE, toLocalDateTime(DateTime.now()))
+                    .where(ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID.equal(recordId))
+                    .and(
+                        ADYEN_NOTIFICATIONS_QUEUE
+                            .PROCESSING_STATE
+                            .equal(QUEUE_STATE_PENDING)
+                            .or(
+                                ADYEN_NOTIFICATIONS_QUEUE
+                                    .PROCESSING_STATE
+                                    .equal(QUEUE_STATE_PROCESSING)
+                                    .and(
+                                        ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE.lessThan(
+                                            toLocalDateTime(staleBefore)))))
+                    .execute()
+                == 1;
+          }
+        });
+  }
+
+  public void completeQueuedNotification(final ULong recordId) throws SQLException {
+    execute(
+        dataSource.getConnection(),
+        new WithConnectionCallback<Void>() {
+          @Override
+          public Void withConnection(final Connection conn) throws SQLException {
+            DSL.using(conn, dialect, settings)
+                .deleteFrom(ADYEN_NOTIFICATIONS_QUEUE)
+                .where(ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID.equal(recordId))
+                .execute();
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Puts a notification back in PENDING so it is retried, or in FAILED once it has been attempted
+   * {@code maxAttempts} times.
+   */
+  public void failQueuedNotification(
+      final ULong recordId, @Nullable final String error, final int maxAttempts)
+      throws SQLException {
+    final String lastError =
+        error != null && error.length() > MAX_QUEUE_ERROR_LENGTH
+            ? error.substring(0, MAX_QUEUE_ERROR_LENGTH)
+            : error;
+    execute(
+        dataSource.getConnection(),
+        new WithConnectionCallback<Void>() {
+          @Override
+          public Void withConnection(final Connection conn) throws SQLException {
+            DSL.using(conn, dialect, settings)
+                .update(ADYEN_NOTIFICATIONS_QUEUE)
+                .set(
+                    ADYEN_NOTIFICATIONS_QUEUE.PROCESSING_STATE,
+                    DSL.when(
+                            ADYEN_NOTIFICATIONS_QUEUE.ATTEMPTS.greaterOrEqual((short) maxAttempts),
+                            DSL.inline(QUEUE_STATE_FAILED))
+                        .otherwise(DSL.inline(QUEUE_STATE_PENDING)))
+                .set(ADYEN_NOTIFICATIONS_QUEUE.LAST_ERROR, lastError)
+                .set(ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE, toLocalDateTime(DateTime.now()))
+                .where(ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID.equal(recordId))
+                .execute();
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Returns the notifications the sweeper should (re)submit: PENDING rows not touched since {@code
+   * retryBefore} and PROCESSING rows abandoned since {@code staleBefore}.
+   */
+  public List<AdyenNotificationsQueueRecord> getQueuedNotificationsToProcess(
+      final DateTime retryBefore, final DateTime staleBefore, final int limit)
+      throws SQLException {
+    return execute(
+        dataSource.getConnection(),
+        new WithConnectionCallback<List<AdyenNotificationsQueueRecord>>() {
+          @Override
+          public List<AdyenNotificationsQueueRecord> withConnection(final Connection conn)
+              throws SQLException {
+            return DSL.using(conn, dialect, settings)
+                .selectFrom(ADYEN_NOTIFICATIONS_QUEUE)
+                .where(
+                    ADYEN_NOTIFICATIONS_QUEUE
+                        .PROCESSING_STATE
+                        .equal(QUEUE_STATE_PENDING)
+                        .and(
+                            ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE.lessThan(
+                                toLocalDateTime(retryBefore))))
+                .or(
+                    ADYEN_NOTIFICATIONS_QUEUE
+                        .PROCESSING_STATE
+                        .equal(QUEUE_STATE_PROCESSING)
+                        .and(
+                            ADYEN_NOTIFICATIONS_QUEUE.UPDATED_DATE.lessThan(
+                                toLocalDateTime(staleBefore))))
+                .orderBy(ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID)
+                .limit(limit)
                 .fetch();
           }
         });
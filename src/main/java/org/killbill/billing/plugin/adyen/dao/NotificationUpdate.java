@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.dao;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+
+/** Writes needed to apply one notification item, see {@link AdyenDao#addNotifications}. */
+@Getter
+public class NotificationUpdate {
+
+  private final UUID kbAccountId;
+  private final UUID kbPaymentId;
+  private final UUID kbPaymentTransactionId;
+  private final UUID kbTenantId;
+  private final NotificationRequestItem item;
+  private final ProcessorOutputDTO outputDTO;
+  @Nullable private final UUID kbPaymentMethodId;
+  @Nullable private final String recurringDetailReference;
+
+  public NotificationUpdate(
+      final UUID kbAccountId,
+      final UUID kbPaymentId,
+      final UUID kbPaymentTransactionId,
+      final UUID kbTenantId,
+      final NotificationRequestItem item,
+      final ProcessorOutputDTO outputDTO,
+      @Nullable final UUID kbPaymentMethodId,
+      @Nullable final String recurringDetailReference) {
+    this.kbAccountId = kbAccountId;
+    this.kbPaymentId = kbPaymentId;
+    this.kbPaymentTransactionId = kbPaymentTransactionId;
+    this.kbTenantId = kbTenantId;
+    this.item = item;
+    this.outputDTO = outputDTO;
+    this.kbPaymentMethodId = kbPaymentMethodId;
+    this.recurringDetailReference = recurringDetailReference;
+  }
+}
@@ -9,6 +9,7 @@ import org.jooq.impl.DSL;
 import org.jooq.impl.Internal;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenHppRequests;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotifications;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotificationsQueue;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses;
 
 /** A class modelling indexes of tables in killbill. */
@@ -49,23 +50,30 @@ public class Indexes {
           AdyenNotifications.ADYEN_NOTIFICATIONS,
           new OrderField[] {AdyenNotifications.ADYEN_NOTIFICATIONS.KB_PAYMENT_TRANSACTION_ID},
           false);
-  public static final Index ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_PSP_REFERENCE =
+  public static final Index ADYEN_NOTIFICATIONS_QUEUE_ADYEN_NOTIFICATIONS_QUEUE_PROCESSING_STATE =
       Internal.createIndex(
-          DSL.name("adyen_notifications_psp_reference"),
-          AdyenNotifications.ADYEN_NOTIFICATIONS,
-          new OrderField[] {AdyenNotifications.ADYEN_NOTIFICATIONS.PSP_REFERENCE},
+          DSL.name("adyen_notifications_queue_processing_state"),
+          AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE,
+          new OrderField[] {AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE.PROCESSING_STATE},
           false);
-  public static final Index ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_ID =
+  public static final Index ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_ID_KB_TENANT_ID =
       Internal.createIndex(
-          DSL.name("adyen_responses_kb_payment_id"),
+          DSL.name("adyen_responses_kb_payment_id_kb_tenant_id"),
           AdyenResponses.ADYEN_RESPONSES,
-          new OrderField[] {AdyenResponses.ADYEN_RESPONSES.KB_PAYMENT_ID},
+          new OrderField[] {
+            AdyenResponses.ADYEN_RESPONSES.KB_PAYMENT_ID,
+            AdyenResponses.ADYEN_RESPONSES.KB_TENANT_ID,
+            AdyenResponses.ADYEN_RESPONSES.RECORD_ID
+          },
           false);
-  public static final Index ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_TRANSACTION_ID =
+  public static final Index ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_TRANSACTION_ID_RECORD_ID =
       Internal.createIndex(
-          DSL.name("adyen_responses_kb_payment_transaction_id"),
+          DSL.name("adyen_responses_kb_payment_transaction_id_record_id"),
           AdyenResponses.ADYEN_RESPONSES,
-          new OrderField[] {AdyenResponses.ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID},
+          new OrderField[] {
+            AdyenResponses.ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
+            AdyenResponses.ADYEN_RESPONSES.RECORD_ID
+          },
           false);
   public static final Index ADYEN_RESPONSES_PSP_REFERENCE_IDX =
       Internal.createIndex(
@@ -9,9 +9,11 @@ import org.jooq.impl.DSL;
 import org.jooq.impl.Internal;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenHppRequests;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotifications;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotificationsQueue;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenPaymentMethods;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenHppRequestsRecord;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsQueueRecord;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsRecord;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenPaymentMethodsRecord;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
@@ -36,6 +38,17 @@ public class Keys {
           DSL.name("KEY_adyen_hpp_requests_record_id"),
           new TableField[] {AdyenHppRequests.ADYEN_HPP_REQUESTS.RECORD_ID},
           true);
+  public static final UniqueKey<AdyenNotificationsRecord>
+      KEY_ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_PSP_REFERENCE_EVENT_CODE_SUCCESS =
+          Internal.createUniqueKey(
+              AdyenNotifications.ADYEN_NOTIFICATIONS,
+              DSL.name("KEY_adyen_notifications_adyen_notifications_psp_reference_event_code_success"),
+              new TableField[] {
+                AdyenNotifications.ADYEN_NOTIFICATIONS.PSP_REFERENCE,
+                AdyenNotifications.ADYEN_NOTIFICATIONS.EVENT_CODE,
+                AdyenNotifications.ADYEN_NOTIFICATIONS.SUCCESS
+              },
+              true);
   public static final UniqueKey<AdyenNotificationsRecord> KEY_ADYEN_NOTIFICATIONS_PRIMARY =
       Internal.createUniqueKey(
           AdyenNotifications.ADYEN_NOTIFICATIONS,
@@ -48,6 +61,20 @@ public class Keys {
           DSL.name("KEY_adyen_notifications_record_id"),
           new TableField[] {AdyenNotifications.ADYEN_NOTIFICATIONS.RECORD_ID},
           true);
+  public static final UniqueKey<AdyenNotificationsQueueRecord>
+      KEY_ADYEN_NOTIFICATIONS_QUEUE_PRIMARY =
+          Internal.createUniqueKey(
+              AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE,
+              DSL.name("KEY_adyen_notifications_queue_PRIMARY"),
+              new TableField[] {AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID},
+              true);
+  public static final UniqueKey<AdyenNotificationsQueueRecord>
+      KEY_ADYEN_NOTIFICATIONS_QUEUE_RECORD_ID =
+          Internal.createUniqueKey(
+              AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE,
+              DSL.name("KEY_adyen_notifications_queue_record_id"),
+              new TableField[] {AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE.RECORD_ID},
+              true);
   public static final UniqueKey<AdyenPaymentMethodsRecord>
       KEY_ADYEN_PAYMENT_METHODS_ADYEN_PAYMENT_METHODS_KB_PAYMENT_ID =
           Internal.createUniqueKey(
@@ -5,6 +5,7 @@ package org.killbill.billing.plugin.adyen.dao.gen;
 
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenHppRequests;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotifications;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotificationsQueue;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenPaymentMethods;
 import org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses;
 
@@ -19,6 +20,10 @@ public class Tables {
   public static final AdyenNotifications ADYEN_NOTIFICATIONS =
       AdyenNotifications.ADYEN_NOTIFICATIONS;
 
+  /** The table <code>killbill.adyen_notifications_queue</code>. */
+  public static final AdyenNotificationsQueue ADYEN_NOTIFICATIONS_QUEUE =
+      AdyenNotificationsQueue.ADYEN_NOTIFICATIONS_QUEUE;
+
   /** The table <code>killbill.adyen_payment_methods</code>. */
   public static final AdyenPaymentMethods ADYEN_PAYMENT_METHODS =
       AdyenPaymentMethods.ADYEN_PAYMENT_METHODS;
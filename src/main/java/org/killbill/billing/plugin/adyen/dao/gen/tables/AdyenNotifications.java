@@ -237,8 +237,7 @@ public class AdyenNotifications extends TableImpl<AdyenNotificationsRecord> {
   public List<Index> getIndexes() {
     return Arrays.<Index>asList(
         Indexes.ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_KB_PAYMENT_ID,
-        Indexes.ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_KB_PAYMENT_TRANSACTION_ID,
-        Indexes.ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_PSP_REFERENCE);
+        Indexes.ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_KB_PAYMENT_TRANSACTION_ID);
   }
 
   @Override
@@ -254,7 +253,9 @@ public class AdyenNotifications extends TableImpl<AdyenNotificationsRecord> {
   @Override
   public List<UniqueKey<AdyenNotificationsRecord>> getKeys() {
     return Arrays.<UniqueKey<AdyenNotificationsRecord>>asList(
-        Keys.KEY_ADYEN_NOTIFICATIONS_PRIMARY, Keys.KEY_ADYEN_NOTIFICATIONS_RECORD_ID);
+        Keys.KEY_ADYEN_NOTIFICATIONS_ADYEN_NOTIFICATIONS_PSP_REFERENCE_EVENT_CODE_SUCCESS,
+        Keys.KEY_ADYEN_NOTIFICATIONS_PRIMARY,
+        Keys.KEY_ADYEN_NOTIFICATIONS_RECORD_ID);
   }
 
   @Override
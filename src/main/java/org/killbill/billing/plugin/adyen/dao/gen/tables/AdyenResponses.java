@@ -232,6 +232,14 @@ public class AdyenResponses extends TableImpl<AdyenResponsesRecord> {
   public final TableField<AdyenResponsesRecord, String> KB_TENANT_ID =
       createField(DSL.name("kb_tenant_id"), SQLDataType.CHAR(36).nullable(false), this, "");
 
+  /** The column <code>killbill.adyen_responses.kb_payment_method_id</code>. */
+  public final TableField<AdyenResponsesRecord, String> KB_PAYMENT_METHOD_ID =
+      createField(
+          DSL.name("kb_payment_method_id"),
+          SQLDataType.CHAR(36).defaultValue(DSL.inline("NULL", SQLDataType.CHAR)),
+          this,
+          "");
+
   private AdyenResponses(Name alias, Table<AdyenResponsesRecord> aliased) {
     this(alias, aliased, null);
   }
@@ -268,8 +276,8 @@ public class AdyenResponses extends TableImpl<AdyenResponsesRecord> {
   @Override
   public List<Index> getIndexes() {
     return Arrays.<Index>asList(
-        Indexes.ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_ID,
-        Indexes.ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_TRANSACTION_ID,
+        Indexes.ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_ID_KB_TENANT_ID,
+        Indexes.ADYEN_RESPONSES_ADYEN_RESPONSES_KB_PAYMENT_TRANSACTION_ID_RECORD_ID,
         Indexes.ADYEN_RESPONSES_PSP_REFERENCE_IDX);
   }
 
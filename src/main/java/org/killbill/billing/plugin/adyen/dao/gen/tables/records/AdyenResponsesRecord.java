@@ -286,6 +286,16 @@ public class AdyenResponsesRecord extends UpdatableRecordImpl<AdyenResponsesReco
     return (String) get(26);
   }
 
+  /** Setter for <code>killbill.adyen_responses.kb_payment_method_id</code>. */
+  public void setKbPaymentMethodId(String value) {
+    set(27, value);
+  }
+
+  /** Getter for <code>killbill.adyen_responses.kb_payment_method_id</code>. */
+  public String getKbPaymentMethodId() {
+    return (String) get(27);
+  }
+
   // -------------------------------------------------------------------------
   // Primary key information
   // -------------------------------------------------------------------------
@@ -332,7 +342,8 @@ public class AdyenResponsesRecord extends UpdatableRecordImpl<AdyenResponsesReco
       String paRequest,
       String additionalData,
       LocalDateTime createdDate,
-      String kbTenantId) {
+      String kbTenantId,
+      String kbPaymentMethodId) {
     super(AdyenResponses.ADYEN_RESPONSES);
 
     setRecordId(recordId);
@@ -362,5 +373,6 @@ public class AdyenResponsesRecord extends UpdatableRecordImpl<AdyenResponsesReco
     setAdditionalData(additionalData);
     setCreatedDate(createdDate);
     setKbTenantId(kbTenantId);
+    setKbPaymentMethodId(kbPaymentMethodId);
   }
 }
@@ -20,13 +20,13 @@
 drop table if exists adyen_hpp_requests;
 create table adyen_hpp_requests (
   record_id serial
-, kb_account_id char(36) not null
-, kb_payment_id char(36) default null
-, kb_payment_transaction_id char(36) default null
+, kb_account_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
+, kb_payment_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ default null
+, kb_payment_transaction_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ default null
 , transaction_external_key varchar(255) not null
 , additional_data longtext default null
 , created_date datetime not null
-, kb_tenant_id char(36) not null
+, kb_tenant_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
 , primary key(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 create index adyen_hpp_requests_kb_account_id on adyen_hpp_requests(kb_account_id);
@@ -36,9 +36,9 @@ create index adyen_hpp_requests_kb_payment_transaction_id on adyen_hpp_requests(
 drop table if exists adyen_responses;
 create table adyen_responses (
   record_id serial
-, kb_account_id char(36) not null
-, kb_payment_id char(36) not null
-, kb_payment_transaction_id char(36) not null
+, kb_account_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
+, kb_payment_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
+, kb_payment_transaction_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
 , transaction_type varchar(32) not null
 , transaction_status varchar(32) not null
 , amount numeric(15,9)
@@ -61,19 +61,20 @@ create table adyen_responses (
 , pa_request text
 , additional_data longtext default null
 , created_date datetime not null
-, kb_tenant_id char(36) not null
+, kb_tenant_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
+, kb_payment_method_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ default null
 , primary key(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
-create index adyen_responses_kb_payment_id on adyen_responses(kb_payment_id);
-create index adyen_responses_kb_payment_transaction_id on adyen_responses(kb_payment_transaction_id);
+create index adyen_responses_kb_payment_id_kb_tenant_id on adyen_responses(kb_payment_id, kb_tenant_id, record_id);
+create index adyen_responses_kb_payment_transaction_id_record_id on adyen_responses(kb_payment_transaction_id, record_id);
 create index psp_reference_idx on adyen_responses(psp_reference);
 
 drop table if exists adyen_notifications;
 create table adyen_notifications (
   record_id serial
-, kb_account_id char(36)
-, kb_payment_id char(36)
-, kb_payment_transaction_id char(36)
+, kb_account_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */
+, kb_payment_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */
+, kb_payment_transaction_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */
 , transaction_type varchar(32)
 , amount numeric(15,9)
 , currency char(3)
@@ -89,19 +90,32 @@ create table adyen_notifications (
 , success smallint not null default 0
 , additional_data longtext default null
 , created_date datetime not null
-, kb_tenant_id char(36)
+, kb_tenant_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */
 , primary key(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
--- Not unique to handle retries
-create index adyen_notifications_psp_reference on adyen_notifications(psp_reference);
+-- Adyen delivers a notification item again until it is acked, a retry of a stored item is ignored
+create unique index adyen_notifications_psp_reference_event_code_success on adyen_notifications(psp_reference, event_code, success);
 create index adyen_notifications_kb_payment_id on adyen_notifications(kb_payment_id);
 create index adyen_notifications_kb_payment_transaction_id on adyen_notifications(kb_payment_transaction_id);
 
+drop table if exists adyen_notifications_queue;
+create table adyen_notifications_queue (
+  record_id serial
+, body longtext not null
+, processing_state varchar(32) not null
+, attempts smallint not null default 0
+, last_error text default null
+, created_date datetime not null
+, updated_date datetime not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create index adyen_notifications_queue_processing_state on adyen_notifications_queue(processing_state);
+
 drop table if exists adyen_payment_methods;
 create table adyen_payment_methods (
   record_id serial
-, kb_account_id char(36) not null
-, kb_payment_method_id char(36) not null
+, kb_account_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
+, kb_payment_method_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
 , is_recurring smallint not null default 0
 , is_default smallint not null default 0
 , is_deleted smallint not null default 0
@@ -109,7 +123,7 @@ create table adyen_payment_methods (
 , additional_data longtext default null
 , created_date datetime not null
 , updated_date datetime not null
-, kb_tenant_id char(36) not null
+, kb_tenant_id char(36) /*! CHARACTER SET ascii COLLATE ascii_bin */ not null
 , primary key(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 create unique index adyen_payment_methods_kb_payment_id on adyen_payment_methods(kb_payment_method_id);
\ No newline at end of file
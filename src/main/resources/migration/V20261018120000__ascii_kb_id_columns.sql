@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+-- MySQL only: Kill Bill ids are ASCII, a utf8 char(36) key reserves 108 bytes in sort buffers and
+-- temporary tables where an ascii one takes 36. The ids stay strings, PostgreSQL is unchanged.
+alter table adyen_hpp_requests
+  modify kb_account_id char(36) character set ascii collate ascii_bin not null
+, modify kb_payment_id char(36) character set ascii collate ascii_bin default null
+, modify kb_payment_transaction_id char(36) character set ascii collate ascii_bin default null
+, modify kb_tenant_id char(36) character set ascii collate ascii_bin not null;
+alter table adyen_responses
+  modify kb_account_id char(36) character set ascii collate ascii_bin not null
+, modify kb_payment_id char(36) character set ascii collate ascii_bin not null
+, modify kb_payment_transaction_id char(36) character set ascii collate ascii_bin not null
+, modify kb_tenant_id char(36) character set ascii collate ascii_bin not null;
+alter table adyen_notifications
+  modify kb_account_id char(36) character set ascii collate ascii_bin
+, modify kb_payment_id char(36) character set ascii collate ascii_bin
+, modify kb_payment_transaction_id char(36) character set ascii collate ascii_bin
+, modify kb_tenant_id char(36) character set ascii collate ascii_bin;
+alter table adyen_payment_methods
+  modify kb_account_id char(36) character set ascii collate ascii_bin not null
+, modify kb_payment_method_id char(36) character set ascii collate ascii_bin not null
+, modify kb_tenant_id char(36) character set ascii collate ascii_bin not null;
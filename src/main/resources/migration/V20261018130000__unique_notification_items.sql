@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+-- Adyen delivers a notification item again until it is acked. Keep the first copy of every item
+-- already stored in place and move the retries to adyen_notifications_archive, then let the unique
+-- index reject the next ones. The unique index also serves the psp_reference lookups, the index it
+-- supersedes is dropped once it is built.
+create table adyen_notifications_archive like adyen_notifications;
+insert into adyen_notifications_archive
+select * from adyen_notifications retry
+ where exists (select 1 from adyen_notifications original
+                where original.psp_reference = retry.psp_reference
+                  and original.event_code = retry.event_code
+                  and original.success = retry.success
+                  and original.record_id < retry.record_id);
+delete retry from adyen_notifications retry
+  join adyen_notifications_archive archived
+    on archived.record_id = retry.record_id;
+create unique index adyen_notifications_psp_reference_event_code_success on adyen_notifications(psp_reference, event_code, success);
+drop index adyen_notifications_psp_reference on adyen_notifications;
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+-- Match the (kb_payment_id, kb_tenant_id) lookups ordered by record_id and the merchant reference
+-- lookups, so neither needs a sort step. The new indexes are built before the ones they supersede
+-- are dropped.
+create index adyen_responses_kb_payment_id_kb_tenant_id on adyen_responses(kb_payment_id, kb_tenant_id, record_id);
+create index adyen_responses_kb_payment_transaction_id_record_id on adyen_responses(kb_payment_transaction_id, record_id);
+drop index if exists adyen_responses_kb_payment_id;
+drop index if exists adyen_responses_kb_payment_transaction_id;
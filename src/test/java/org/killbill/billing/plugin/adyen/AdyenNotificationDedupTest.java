@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenNotifications.ADYEN_NOTIFICATIONS;
+
+import com.adyen.model.Amount;
+import com.adyen.model.notification.NotificationRequestItem;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.dao.AdyenDao;
+import org.killbill.billing.plugin.adyen.dao.NotificationUpdate;
+
+public class AdyenNotificationDedupTest extends TestBase {
+
+  @Test
+  public void testRetriedItemIsStoredOnce() throws Exception {
+    final NotificationRequestItem item = newItem("8815329842815468", "AUTHORISATION", true);
+    Assert.assertFalse(isProcessed(dao, item));
+
+    final NotificationUpdate update = newUpdate(item);
+    dao.addNotifications(Collections.singletonList(update));
+    Assert.assertTrue(isProcessed(dao, item));
+    // A retry which made it past the lookup is rejected by the unique index and skipped
+    dao.addNotifications(Collections.singletonList(update));
+    Assert.assertEquals(1, countNotifications());
+    // The other items of its batch are still stored
+    final NotificationRequestItem capture = newItem("8815329842815468", "CAPTURE", true);
+    dao.addNotifications(Arrays.asList(update, newUpdate(capture)));
+    Assert.assertEquals(2, countNotifications());
+    Assert.assertTrue(isProcessed(dao, capture));
+
+    // Answered by the index when the item is not in memory
+    final AdyenDao otherDao = EmbeddedDbHelper.instance().getAdyenDao();
+    Assert.assertTrue(isProcessed(otherDao, item));
+    Assert.assertFalse(
+        isProcessed(otherDao, newItem("8815329842815468", "AUTHORISATION", false)));
+    Assert.assertFalse(isProcessed(otherDao, newItem("8815329842815468", "REFUND", true)));
+
+    // A failed authorisation followed by a successful one are different items
+    dao.addNotifications(
+        Collections.singletonList(
+            newUpdate(newItem("8815329842815468", "AUTHORISATION", false))));
+    Assert.assertEquals(3, countNotifications());
+  }
+
+  private static boolean isProcessed(final AdyenDao adyenDao, final NotificationRequestItem item)
+      throws Exception {
+    return adyenDao.inTransaction(
+        dslContext -> adyenDao.isNotificationProcessed(dslContext, item));
+  }
+
+  private int countNotifications() throws Exception {
+    return dao.inTransaction(dslContext -> dslContext.fetchCount(ADYEN_NOTIFICATIONS));
+  }
+
+  private static NotificationRequestItem newItem(
+      final String pspReference, final String eventCode, final boolean success) {
+    final Amount amount = new Amount();
+    amount.setCurrency("USD");
+    amount.setValue(1000L);
+    final NotificationRequestItem item = new NotificationRequestItem();
+    item.setAmount(amount);
+    item.setEventCode(eventCode);
+    item.setMerchantAccountCode("test");
+    item.setMerchantReference(UUID.randomUUID().toString());
+    item.setPspReference(pspReference);
+    item.setSuccess(success);
+    return item;
+  }
+
+  private static NotificationUpdate newUpdate(final NotificationRequestItem item) {
+    final ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+    outputDTO.setPspReferenceCode(item.getPspReference());
+    outputDTO.setStatus(
+        item.isSuccess() ? PaymentPluginStatus.PROCESSED : PaymentPluginStatus.ERROR);
+    return new NotificationUpdate(
+        UUID.randomUUID(),
+        UUID.randomUUID(),
+        UUID.fromString(item.getMerchantReference()),
+        UUID.randomUUID(),
+        item,
+        outputDTO,
+        null,
+        null);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import java.util.List;
+import org.joda.time.DateTime;
+import org.jooq.types.ULong;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenNotificationsQueueRecord;
+
+public class AdyenNotificationQueueTest extends TestBase {
+
+  @Test
+  public void testQueuedNotificationLifecycle() throws Exception {
+    final ULong recordId = dao.enqueueNotification("{\"live\":\"false\"}");
+    final DateTime past = DateTime.now().minusMinutes(10);
+    final DateTime future = DateTime.now().plusMinutes(10);
+
+    Assert.assertTrue(dao.claimQueuedNotification(recordId, past));
+    // A second worker cannot claim the row while it is being processed
+    Assert.assertFalse(dao.claimQueuedNotification(recordId, past));
+
+    // First failure puts it back in the queue
+    dao.failQueuedNotification(recordId, "boom", 2);
+    List<AdyenNotificationsQueueRecord> toProcess =
+        dao.getQueuedNotificationsToProcess(future, past, 10);
+    Assert.assertEquals(1, toProcess.size());
+    Assert.assertEquals("{\"live\":\"false\"}", toProcess.get(0).getBody());
+    Assert.assertEquals("boom", toProcess.get(0).getLastError());
+
+    // Second failure reaches the maximum number of attempts
+    Assert.assertTrue(dao.claimQueuedNotification(recordId, past));
+    dao.failQueuedNotification(recordId, "boom", 2);
+    Assert.assertTrue(dao.getQueuedNotificationsToProcess(future, future, 10).isEmpty());
+    Assert.assertFalse(dao.claimQueuedNotification(recordId, future));
+
+    final ULong otherRecordId = dao.enqueueNotification("{}");
+    Assert.assertTrue(dao.claimQueuedNotification(otherRecordId, past));
+    // Abandoned by its worker, reclaimable once stale
+    Assert.assertEquals(1, dao.getQueuedNotificationsToProcess(past, future, 10).size());
+    Assert.assertTrue(dao.claimQueuedNotification(otherRecordId, future));
+    dao.completeQueuedNotification(otherRecordId);
+    Assert.assertTrue(dao.getQueuedNotificationsToProcess(future, future, 10).isEmpty());
+  }
+}
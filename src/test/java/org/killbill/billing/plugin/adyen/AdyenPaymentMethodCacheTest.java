@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.plugin.adyen.dao.AdyenDao;
+
+public class AdyenPaymentMethodCacheTest extends TestBase {
+
+  @Test
+  public void testCacheIsInvalidatedOnWrite() throws Exception {
+    final UUID kbAccountId = UUID.randomUUID();
+    final UUID kbPaymentMethodId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    dao.addPaymentMethod(kbAccountId, kbPaymentMethodId, ImmutableMap.of(), true, kbTenantId, true);
+
+    Assert.assertNull(
+        dao.getPaymentMethod(kbPaymentMethodId.toString()).getRecurringDetailReference());
+    // Served from the cache
+    Assert.assertNotNull(dao.getPaymentMethod(kbPaymentMethodId, kbTenantId));
+    Assert.assertEquals(1L, dao.getPaymentMethodCacheMetrics().get("paymentMethodCache.hitCount"));
+    Assert.assertNull(dao.getPaymentMethod(kbPaymentMethodId, UUID.randomUUID()));
+
+    dao.updateRecurringDetailsPaymentMethod(kbPaymentMethodId, kbTenantId, "recurringReference");
+    Assert.assertEquals(
+        "recurringReference",
+        dao.getPaymentMethodsByMethodId(kbPaymentMethodId).getRecurringDetailReference());
+
+    dao.updateIsDeletePaymentMethod(kbPaymentMethodId, kbTenantId);
+    Assert.assertNull(dao.getPaymentMethod(kbPaymentMethodId, kbTenantId));
+  }
+
+  @Test
+  public void testDeletedPaymentMethodIsNotLoaded() throws Exception {
+    final UUID kbAccountId = UUID.randomUUID();
+    final UUID kbPaymentMethodId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    dao.addPaymentMethod(kbAccountId, kbPaymentMethodId, ImmutableMap.of(), true, kbTenantId, true);
+    dao.updateIsDeletePaymentMethod(kbPaymentMethodId, kbTenantId);
+
+    Assert.assertNull(dao.getPaymentMethod(kbPaymentMethodId.toString()));
+    // Not served from a cache which never saw the row alive either
+    final AdyenDao otherDao = EmbeddedDbHelper.instance().getAdyenDao();
+    Assert.assertNull(otherDao.getPaymentMethod(kbPaymentMethodId.toString()));
+    Assert.assertNull(otherDao.getPaymentMethod(kbPaymentMethodId, kbTenantId));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
+import org.killbill.billing.plugin.api.PluginTenantContext;
+
+public class AdyenResponsesPaginationTest extends TestBase {
+
+  @Test
+  public void testKeysetPagesAndStream() throws Exception {
+    final UUID kbAccountId = UUID.randomUUID();
+    final UUID kbPaymentId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    final List<UUID> kbTransactionIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      final UUID kbTransactionId = UUID.randomUUID();
+      kbTransactionIds.add(0, kbTransactionId);
+      dao.addResponse(
+          kbAccountId,
+          kbPaymentId,
+          kbTransactionId,
+          null,
+          i == 0 ? TransactionType.PURCHASE : TransactionType.REFUND,
+          BigDecimal.ONE,
+          Currency.USD,
+          PaymentPluginStatus.PENDING,
+          null,
+          new ProcessorOutputDTO(),
+          kbTenantId);
+    }
+    // Another payment of the same tenant
+    dao.addResponse(
+        kbAccountId,
+        UUID.randomUUID(),
+        UUID.randomUUID(),
+        null,
+        TransactionType.PURCHASE,
+        BigDecimal.ONE,
+        Currency.USD,
+        PaymentPluginStatus.PENDING,
+        null,
+        new ProcessorOutputDTO(),
+        kbTenantId);
+
+    final List<AdyenResponsesRecord> firstPage =
+        dao.getResponsesPage(kbPaymentId, kbTenantId, null, 2);
+    Assert.assertEquals(2, firstPage.size());
+    final List<AdyenResponsesRecord> secondPage =
+        dao.getResponsesPage(kbPaymentId, kbTenantId, firstPage.get(1).getRecordId(), 2);
+    Assert.assertEquals(2, secondPage.size());
+    final List<AdyenResponsesRecord> lastPage =
+        dao.getResponsesPage(kbPaymentId, kbTenantId, secondPage.get(1).getRecordId(), 2);
+    Assert.assertEquals(1, lastPage.size());
+    Assert.assertEquals(
+        kbTransactionIds.get(4).toString(), lastPage.get(0).getKbPaymentTransactionId());
+
+    // Page sizes dividing the history or not
+    for (final int pageSize : new int[] {1, 2, 5, 10}) {
+      final List<String> streamed = new ArrayList<>();
+      dao.streamResponses(
+          kbPaymentId,
+          kbTenantId,
+          pageSize,
+          record -> streamed.add(record.getKbPaymentTransactionId()));
+      Assert.assertEquals(5, streamed.size());
+      for (int i = 0; i < 5; i++) {
+        Assert.assertEquals(kbTransactionIds.get(i).toString(), streamed.get(i));
+      }
+    }
+
+    final List<PaymentTransactionInfoPlugin> paymentInfo =
+        adyenPaymentPluginApi.getPaymentInfo(
+            kbAccountId, kbPaymentId, null, new PluginTenantContext(kbAccountId, kbTenantId));
+    Assert.assertEquals(5, paymentInfo.size());
+    Assert.assertEquals(TransactionType.PURCHASE, paymentInfo.get(4).getTransactionType());
+  }
+}
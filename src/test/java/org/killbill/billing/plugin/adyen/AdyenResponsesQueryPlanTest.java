@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import static org.killbill.billing.plugin.adyen.dao.gen.tables.AdyenResponses.ADYEN_RESPONSES;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.UUID;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.commons.embeddeddb.EmbeddedDB;
+
+/**
+ * Guards the adyen_responses indexes against the DAO access patterns. Plans are only asserted on
+ * H2, the MySQL and PostgreSQL optimizers pick a full scan on tables this small.
+ */
+public class AdyenResponsesQueryPlanTest extends TestBase {
+
+  @Test
+  public void testPaymentLookupsUseCompositeIndexes() throws Exception {
+    Assume.assumeTrue(EmbeddedDbHelper.instance().getDBEngine() == EmbeddedDB.DBEngine.H2);
+
+    final UUID kbTenantId = UUID.randomUUID();
+    for (int i = 0; i < 10; i++) {
+      dao.addResponse(
+          UUID.randomUUID(),
+          UUID.randomUUID(),
+          UUID.randomUUID(),
+          null,
+          TransactionType.PURCHASE,
+          BigDecimal.TEN,
+          Currency.USD,
+          PaymentPluginStatus.PENDING,
+          null,
+          new ProcessorOutputDTO(),
+          kbTenantId);
+    }
+
+    final DSLContext dslContext =
+        DSL.using(EmbeddedDbHelper.instance().getDataSource(), SQLDialect.H2);
+    final String kbPaymentId = UUID.randomUUID().toString();
+
+    assertUsesIndex(
+        dslContext,
+        dslContext
+            .selectFrom(ADYEN_RESPONSES)
+            .where(ADYEN_RESPONSES.KB_PAYMENT_ID.equal(kbPaymentId))
+            .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+            .orderBy(ADYEN_RESPONSES.RECORD_ID.desc()),
+        "adyen_responses_kb_payment_id_kb_tenant_id");
+    assertUsesIndex(
+        dslContext,
+        dslContext
+            .update(ADYEN_RESPONSES)
+            .set(ADYEN_RESPONSES.TRANSACTION_STATUS, "PROCESSED")
+            .where(ADYEN_RESPONSES.KB_PAYMENT_ID.equal(kbPaymentId))
+            .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString())),
+        "adyen_responses_kb_payment_id_kb_tenant_id");
+    assertUsesIndex(
+        dslContext,
+        dslContext
+            .update(ADYEN_RESPONSES)
+            .set(ADYEN_RESPONSES.TRANSACTION_STATUS, "PROCESSED")
+            .where(ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(UUID.randomUUID().toString()))
+            .and(ADYEN_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString())),
+        "adyen_responses_kb_payment_transaction_id_record_id");
+    assertUsesIndex(
+        dslContext,
+        dslContext
+            .selectFrom(ADYEN_RESPONSES)
+            .where(ADYEN_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(UUID.randomUUID().toString()))
+            .orderBy(ADYEN_RESPONSES.RECORD_ID),
+        "adyen_responses_kb_payment_transaction_id_record_id");
+  }
+
+  private static void assertUsesIndex(
+      final DSLContext dslContext, final Query query, final String indexName) {
+    final String plan = dslContext.explain(query).plan();
+    Assert.assertTrue(
+        plan, plan.toLowerCase(Locale.ROOT).contains(indexName.toLowerCase(Locale.ROOT)));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
+
+public class AdyenTransactionResponseUpdateTest extends TestBase {
+
+  @Test
+  public void testOnlyTheNotifiedTransactionIsUpdated() throws Exception {
+    final UUID kbAccountId = UUID.randomUUID();
+    final UUID kbPaymentId = UUID.randomUUID();
+    final UUID kbPurchaseId = UUID.randomUUID();
+    final UUID kbRefundId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    addPendingResponse(
+        kbAccountId, kbPaymentId, kbPurchaseId, TransactionType.PURCHASE, kbTenantId);
+    addPendingResponse(kbAccountId, kbPaymentId, kbRefundId, TransactionType.REFUND, kbTenantId);
+
+    final ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+    outputDTO.setPspReferenceCode("8825329842815469");
+    outputDTO.setStatus(PaymentPluginStatus.PROCESSED);
+    // Another tenant cannot update the response
+    dao.updateTransactionResponse(kbRefundId, outputDTO, UUID.randomUUID());
+    dao.updateTransactionResponse(kbRefundId, outputDTO, kbTenantId);
+
+    final List<AdyenResponsesRecord> responses = new ArrayList<>();
+    dao.streamResponses(kbPaymentId, kbTenantId, 10, responses::add);
+    Assert.assertEquals(2, responses.size());
+    // Most recent first
+    Assert.assertEquals(kbRefundId.toString(), responses.get(0).getKbPaymentTransactionId());
+    Assert.assertEquals("PROCESSED", responses.get(0).getTransactionStatus());
+    Assert.assertEquals("8825329842815469", responses.get(0).getPspReference());
+    Assert.assertEquals(kbPurchaseId.toString(), responses.get(1).getKbPaymentTransactionId());
+    Assert.assertEquals("PENDING", responses.get(1).getTransactionStatus());
+    Assert.assertNull(responses.get(1).getPspReference());
+  }
+
+  @Test
+  public void testMerchantReferenceLookupReturnsThePaymentMethod() throws Exception {
+    final UUID kbTransactionId = UUID.randomUUID();
+    final UUID kbPaymentMethodId = UUID.randomUUID();
+    dao.addResponse(
+        UUID.randomUUID(),
+        UUID.randomUUID(),
+        kbTransactionId,
+        kbPaymentMethodId,
+        TransactionType.PURCHASE,
+        BigDecimal.TEN,
+        Currency.USD,
+        PaymentPluginStatus.PENDING,
+        null,
+        new ProcessorOutputDTO(),
+        UUID.randomUUID());
+
+    // Notifications resolve the payment method without asking Kill Bill for the payment
+    final AdyenResponsesRecord record =
+        dao.getResponseFromMerchantReference(kbTransactionId.toString());
+    Assert.assertEquals(kbPaymentMethodId.toString(), record.getKbPaymentMethodId());
+  }
+
+  @Test
+  public void testMerchantReferenceLookupReturnsTheLatestResponse() throws Exception {
+    final UUID kbAccountId = UUID.randomUUID();
+    final UUID kbPaymentId = UUID.randomUUID();
+    final UUID kbTransactionId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    // Rows recorded twice for a transaction before replays were detected
+    addPendingResponse(
+        kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, kbTenantId);
+    addPendingResponse(
+        kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, kbTenantId);
+
+    final AdyenResponsesRecord record =
+        dao.getResponseFromMerchantReference(kbTransactionId.toString());
+    final List<AdyenResponsesRecord> responses = new ArrayList<>();
+    dao.streamResponses(kbPaymentId, kbTenantId, 10, responses::add);
+    Assert.assertEquals(responses.get(0).getRecordId(), record.getRecordId());
+  }
+
+  private void addPendingResponse(
+      final UUID kbAccountId,
+      final UUID kbPaymentId,
+      final UUID kbTransactionId,
+      final TransactionType transactionType,
+      final UUID kbTenantId)
+      throws Exception {
+    dao.addResponse(
+        kbAccountId,
+        kbPaymentId,
+        kbTransactionId,
+        null,
+        transactionType,
+        BigDecimal.TEN,
+        Currency.USD,
+        PaymentPluginStatus.PENDING,
+        null,
+        new ProcessorOutputDTO(),
+        kbTenantId);
+  }
+}
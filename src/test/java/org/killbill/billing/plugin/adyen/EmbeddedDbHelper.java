@@ -18,6 +18,7 @@ package org.killbill.billing.plugin.adyen;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 import org.killbill.billing.platform.test.PlatformDBTestingHelper;
 import org.killbill.billing.plugin.TestUtils;
 import org.killbill.billing.plugin.adyen.dao.AdyenDao;
@@ -57,6 +58,14 @@ public class EmbeddedDbHelper {
     return new AdyenDao(embeddedDB.getDataSource());
   }
 
+  public DataSource getDataSource() throws IOException {
+    return embeddedDB.getDataSource();
+  }
+
+  public EmbeddedDB.DBEngine getDBEngine() {
+    return embeddedDB.getDBEngine();
+  }
+
   public void resetDB() throws IOException {
     embeddedDB.cleanupAllTables();
   }
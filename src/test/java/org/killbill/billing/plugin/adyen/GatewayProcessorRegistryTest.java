@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen;
+
+import java.io.IOException;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessor;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorRegistry;
+import org.killbill.billing.plugin.adyen.core.AdyenActivator;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+
+public class GatewayProcessorRegistryTest {
+
+  @Test
+  public void testProcessorIsReusedUntilConfigurationChanges() throws IOException {
+    final AdyenConfigurationHandler handler =
+        new AdyenConfigurationHandler(null, AdyenActivator.PLUGIN_NAME, null);
+    handler.setDefaultConfigurable(
+        new AdyenConfigProperties(TestUtils.loadProperties("adyen.properties"), ""));
+    final GatewayProcessorRegistry registry = new GatewayProcessorRegistry(handler);
+    final UUID kbTenantId = UUID.randomUUID();
+
+    final GatewayProcessor first = registry.get(kbTenantId);
+    Assert.assertSame(first, registry.get(kbTenantId));
+    Assert.assertEquals(1, registry.size());
+
+    handler.setDefaultConfigurable(
+        new AdyenConfigProperties(TestUtils.loadProperties("adyen.properties"), ""));
+    final GatewayProcessor second = registry.get(kbTenantId);
+    Assert.assertNotSame(first, second);
+    Assert.assertSame(second, registry.get(kbTenantId));
+
+    registry.invalidate(kbTenantId);
+    Assert.assertEquals(0, registry.size());
+    registry.close();
+  }
+
+  @Test
+  public void testMetricsDoNotBuildAProcessor() throws IOException {
+    final AdyenConfigurationHandler handler =
+        new AdyenConfigurationHandler(null, AdyenActivator.PLUGIN_NAME, null);
+    handler.setDefaultConfigurable(
+        new AdyenConfigProperties(TestUtils.loadProperties("adyen.properties"), ""));
+    final GatewayProcessorRegistry registry = new GatewayProcessorRegistry(handler);
+    final UUID kbTenantId = UUID.randomUUID();
+
+    Assert.assertTrue(registry.getMetrics(kbTenantId).isEmpty());
+    Assert.assertEquals(0, registry.size());
+
+    registry.get(kbTenantId);
+    Assert.assertTrue(registry.getMetrics(kbTenantId).containsKey("http.pool.leased"));
+    registry.close();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.api;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.payment.api.PluginProperty;
+
+public class AdditionalDataPropertiesTest {
+
+  private static final String ADDITIONAL_DATA =
+      "{\"authCode\":\"065696\",\"fraud\":{\"score\":12,\"checks\":[\"avs\",\"cvc\"]},"
+          + "\"liabilityShift\":true,\"recurring.recurringDetailReference\":\"8415698462516992\"}";
+
+  @Test
+  public void testDecodesLikeAMap() {
+    final AdditionalDataProperties properties =
+        new AdditionalDataProperties(ADDITIONAL_DATA, false);
+
+    Assert.assertEquals(4, properties.size());
+    final PluginProperty authCode = properties.get(0);
+    Assert.assertEquals("authCode", authCode.getKey());
+    Assert.assertEquals("065696", authCode.getValue());
+    Assert.assertFalse(authCode.getIsUpdatable());
+    Assert.assertEquals(
+        ImmutableMap.of("score", 12, "checks", Arrays.asList("avs", "cvc")),
+        properties.get(1).getValue());
+    Assert.assertEquals(Boolean.TRUE, properties.get(2).getValue());
+  }
+
+  @Test
+  public void testGetValueSkipsOtherKeys() {
+    final AdditionalDataProperties properties =
+        new AdditionalDataProperties(ADDITIONAL_DATA, true);
+
+    Assert.assertEquals(
+        "8415698462516992", properties.getValue("recurring.recurringDetailReference"));
+    Assert.assertNull(properties.getValue("score"));
+    Assert.assertNull(properties.getValue("missing"));
+    // Same answers once decoded
+    Assert.assertEquals(4, properties.size());
+    Assert.assertEquals(
+        "8415698462516992", properties.getValue("recurring.recurringDetailReference"));
+    Assert.assertNull(properties.getValue("missing"));
+  }
+
+  @Test
+  public void testMissingOrInvalidData() {
+    Assert.assertTrue(new AdditionalDataProperties(null, true).isEmpty());
+    Assert.assertNull(new AdditionalDataProperties(null, true).getValue("authCode"));
+    Assert.assertTrue(new AdditionalDataProperties("{\"authCode\":", true).isEmpty());
+    Assert.assertTrue(new AdditionalDataProperties("[]", true).isEmpty());
+  }
+}
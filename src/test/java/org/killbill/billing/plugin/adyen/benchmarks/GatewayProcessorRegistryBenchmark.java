@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessor;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorFactory;
+import org.killbill.billing.plugin.adyen.client.GatewayProcessorRegistry;
+import org.killbill.billing.plugin.adyen.core.AdyenActivator;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building a gateway processor on every call (what the plugin API used to do) with the
+ * per-tenant registry lookup. Run with {@code -prof gc} to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GatewayProcessorRegistryBenchmark {
+
+  private UUID kbTenantId;
+  private AdyenConfigurationHandler adyenConfigurationHandler;
+  private GatewayProcessorRegistry registry;
+
+  @Setup
+  public void setUp() throws IOException {
+    kbTenantId = UUID.randomUUID();
+    adyenConfigurationHandler =
+        new AdyenConfigurationHandler(null, AdyenActivator.PLUGIN_NAME, null);
+    adyenConfigurationHandler.setDefaultConfigurable(
+        new AdyenConfigProperties(TestUtils.loadProperties("adyen.properties"), ""));
+    registry = new GatewayProcessorRegistry(adyenConfigurationHandler);
+  }
+
+  @Benchmark
+  public GatewayProcessor newProcessorPerCall() {
+    final GatewayProcessor processor =
+        GatewayProcessorFactory.get(adyenConfigurationHandler.getConfigurable(kbTenantId));
+    // Releases the I/O threads of the async client
+    processor.close();
+    return processor;
+  }
+
+  @Benchmark
+  public GatewayProcessor registryLookup() {
+    return registry.get(kbTenantId);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.plugin.adyen.client.MinorUnitConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a Kill Bill amount to Adyen minor units, compared with the string based
+ * conversion it replaced. Run with {@code -prof gc} to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinorUnitConverterBenchmark {
+
+  @Param({"10.00", "1234.5", "99"})
+  public String amountValue;
+
+  private BigDecimal amount;
+
+  @Setup
+  public void setUp() {
+    amount = new BigDecimal(amountValue);
+  }
+
+  @Benchmark
+  public long minorUnitConverter() {
+    return MinorUnitConverter.toMinorUnits(amount, Currency.USD);
+  }
+
+  @Benchmark
+  public long stringReplace() {
+    // Former AdyenSDKClientImpl.convertToMinorUnit, only right for amounts with a scale of 2
+    return Long.valueOf(amount.toString().replace(".", ""));
+  }
+}
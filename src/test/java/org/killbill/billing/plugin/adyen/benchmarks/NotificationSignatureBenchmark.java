@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.notification.NotificationHandler;
+import com.adyen.util.HMACValidator;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.killbill.billing.plugin.adyen.core.NotificationSignatureValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation cost of the HMAC signature of one notification item, with the Adyen library validator
+ * (key decoded and Mac built per item) and with the per-tenant pre-keyed validator. Runs on 4
+ * threads like a busy webhook endpoint, use {@code -prof gc} for the allocation rate per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class NotificationSignatureBenchmark {
+
+  private static final String HMAC_KEY =
+      "44782DEF547AAA06C910C43932B1EB0C71FC68D9D0C057550C48EC2ACF6BA056";
+
+  private NotificationRequestItem item;
+  private NotificationSignatureValidator validator;
+
+  @Setup
+  public void setUp() throws Exception {
+    item =
+        new NotificationHandler()
+            .handleNotificationJson(
+                "{\"live\":\"false\",\"notificationItems\":[{\"NotificationRequestItem\":{"
+                    + "\"amount\":{\"currency\":\"USD\",\"value\":1000},"
+                    + "\"eventCode\":\"AUTHORISATION\","
+                    + "\"eventDate\":\"2021-01-01T01:00:00+01:00\","
+                    + "\"merchantAccountCode\":\"test\","
+                    + "\"merchantReference\":\"4c3f4a9e-8d0b-4e6f-9a1b-2c3d4e5f6a7b\","
+                    + "\"pspReference\":\"8815329842815468\","
+                    + "\"success\":\"true\"}}]}")
+            .getNotificationItems()
+            .get(0);
+    item.setAdditionalData(new HashMap<>());
+    item.getAdditionalData()
+        .put("hmacSignature", new HMACValidator().calculateHMAC(item, HMAC_KEY));
+    validator = NotificationSignatureValidator.forHexKey(HMAC_KEY);
+  }
+
+  @Benchmark
+  public boolean hmacValidatorPerItem() throws Exception {
+    return new HMACValidator().validateHMAC(item, HMAC_KEY);
+  }
+
+  @Benchmark
+  public boolean preKeyedValidator() {
+    return validator.isValid(item);
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.notification.NotificationHandler;
+import com.adyen.util.HMACValidator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.joda.time.DateTime;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.GatewayNotification;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.adyen.EmbeddedDbHelper;
+import org.killbill.billing.plugin.adyen.api.AdyenPaymentPluginApi;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.core.AdyenActivator;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigurationHandler;
+import org.killbill.billing.plugin.adyen.dao.AdyenDao;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.clock.ClockMock;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end cost of the plugin API calls on the hot path: the embedded database of the tests
+ * and a {@link StubAdyenServer} replace MySQL and Adyen, so the numbers cover the plugin code,
+ * the DAO and the HTTP transport. Run with {@code -prof gc} to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentPluginApiBenchmark {
+
+  // Any valid hex key, the notifications below are signed with it
+  private static final String HMAC_KEY =
+      "44782DEF547AAA06C910C43932B1EB0C71FC68D9D0C057550C48EC2ACF6BA056";
+  private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+  private static final List<PluginProperty> NO_PROPERTIES = ImmutableList.of();
+  private static final AtomicLong PSP_REFERENCES = new AtomicLong(8815329842815469L);
+
+  private StubAdyenServer stubAdyenServer;
+  private AdyenDao adyenDao;
+  private AdyenPaymentPluginApi adyenPaymentPluginApi;
+  private UUID kbAccountId;
+  private UUID kbPaymentMethodId;
+  private CallContext context;
+  private UUID kbPaymentIdWithHistory;
+  private String duplicateNotification;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    stubAdyenServer = new StubAdyenServer();
+    EmbeddedDbHelper.instance().startDb();
+    adyenDao = EmbeddedDbHelper.instance().getAdyenDao();
+
+    final Account account = TestUtils.buildAccount(Currency.USD, "US");
+    kbAccountId = account.getId();
+    kbPaymentMethodId = UUID.randomUUID();
+    final UUID kbTenantId = UUID.randomUUID();
+    context =
+        new PluginCallContext(AdyenActivator.PLUGIN_NAME, DateTime.now(), kbAccountId, kbTenantId);
+
+    final OSGIKillbillAPI killbillApi = TestUtils.buildOSGIKillbillAPI(account);
+    final PaymentApi paymentApi = Mockito.mock(PaymentApi.class);
+    final Payment payment = Mockito.mock(Payment.class);
+    Mockito.when(payment.getPaymentMethodId()).thenReturn(kbPaymentMethodId);
+    Mockito.when(
+            paymentApi.getPayment(
+                Mockito.any(UUID.class),
+                Mockito.anyBoolean(),
+                Mockito.anyBoolean(),
+                Mockito.any(),
+                Mockito.any(TenantContext.class)))
+        .thenReturn(payment);
+    Mockito.when(killbillApi.getPaymentApi()).thenReturn(paymentApi);
+
+    final Properties properties = TestUtils.loadProperties("adyen.properties");
+    properties.setProperty("org.killbill.billing.plugin.adyen.hcmaKey", HMAC_KEY);
+    properties.setProperty(
+        "org.killbill.billing.plugin.adyen.checkoutEndpoint",
+        stubAdyenServer.getCheckoutEndpoint());
+    final AdyenConfigurationHandler adyenConfigurationHandler =
+        new AdyenConfigurationHandler(null, AdyenActivator.PLUGIN_NAME, killbillApi);
+    adyenConfigurationHandler.setDefaultConfigurable(new AdyenConfigProperties(properties, ""));
+    adyenPaymentPluginApi =
+        new AdyenPaymentPluginApi(
+            adyenConfigurationHandler,
+            killbillApi,
+            Mockito.mock(OSGIConfigPropertiesService.class),
+            new ClockMock(),
+            adyenDao);
+
+    adyenDao.addPaymentMethod(
+        kbAccountId, kbPaymentMethodId, ImmutableMap.of(), true, kbTenantId, true);
+    adyenDao.updateRecurringDetailsPaymentMethod(kbPaymentMethodId, kbTenantId, "8415698462516992");
+
+    // A purchase followed by a partial refund, as returned by getPaymentInfo
+    kbPaymentIdWithHistory = UUID.randomUUID();
+    final UUID kbPurchaseTransactionId = UUID.randomUUID();
+    addPurchase(kbPaymentIdWithHistory, kbPurchaseTransactionId);
+    adyenDao.addResponse(
+        kbAccountId,
+        kbPaymentIdWithHistory,
+        UUID.randomUUID(),
+        kbPaymentMethodId,
+        TransactionType.REFUND,
+        new BigDecimal("2.50"),
+        Currency.USD,
+        PaymentPluginStatus.PENDING,
+        null,
+        outputWithAdditionalData(),
+        kbTenantId);
+
+    // Stored once here, every invocation of processDuplicateNotification is then an Adyen retry
+    duplicateNotification =
+        buildSignedNotification(kbPurchaseTransactionId.toString(), "8815329842815468");
+    adyenPaymentPluginApi.processNotification(duplicateNotification, NO_PROPERTIES, context);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    EmbeddedDbHelper.instance().stopDB();
+    stubAdyenServer.close();
+  }
+
+  /** Fresh purchase for every refund, the plugin only refunds a payment without prior refunds. */
+  @State(Scope.Thread)
+  public static class RefundState {
+
+    private UUID kbPaymentId;
+
+    @Setup(Level.Invocation)
+    public void setUp(final PaymentPluginApiBenchmark benchmark) throws Exception {
+      kbPaymentId = UUID.randomUUID();
+      benchmark.addPurchase(kbPaymentId, UUID.randomUUID());
+    }
+  }
+
+  /** Fresh purchase and notification item for every invocation, none of them is a retry. */
+  @State(Scope.Thread)
+  public static class NotificationState {
+
+    private String notification;
+
+    @Setup(Level.Invocation)
+    public void setUp(final PaymentPluginApiBenchmark benchmark) throws Exception {
+      final UUID kbTransactionId = UUID.randomUUID();
+      benchmark.addPurchase(UUID.randomUUID(), kbTransactionId);
+      notification =
+          buildSignedNotification(
+              kbTransactionId.toString(), Long.toString(PSP_REFERENCES.incrementAndGet()));
+    }
+  }
+
+  @Benchmark
+  public PaymentTransactionInfoPlugin purchasePayment() throws Exception {
+    return adyenPaymentPluginApi.purchasePayment(
+        kbAccountId,
+        UUID.randomUUID(),
+        UUID.randomUUID(),
+        kbPaymentMethodId,
+        AMOUNT,
+        Currency.USD,
+        NO_PROPERTIES,
+        context);
+  }
+
+  @Benchmark
+  public PaymentTransactionInfoPlugin refundPayment(final RefundState refundState)
+      throws Exception {
+    return adyenPaymentPluginApi.refundPayment(
+        kbAccountId,
+        refundState.kbPaymentId,
+        UUID.randomUUID(),
+        kbPaymentMethodId,
+        AMOUNT,
+        Currency.USD,
+        NO_PROPERTIES,
+        context);
+  }
+
+  @Benchmark
+  public List<PaymentTransactionInfoPlugin> getPaymentInfo() throws Exception {
+    return adyenPaymentPluginApi.getPaymentInfo(
+        kbAccountId, kbPaymentIdWithHistory, NO_PROPERTIES, context);
+  }
+
+  @Benchmark
+  public GatewayNotification processNotification(final NotificationState notificationState)
+      throws Exception {
+    return adyenPaymentPluginApi.processNotification(
+        notificationState.notification, NO_PROPERTIES, context);
+  }
+
+  /** An Adyen retry of a stored item, acked without applying the item again. */
+  @Benchmark
+  public GatewayNotification processDuplicateNotification() throws Exception {
+    return adyenPaymentPluginApi.processNotification(
+        duplicateNotification, NO_PROPERTIES, context);
+  }
+
+  private void addPurchase(final UUID kbPaymentId, final UUID kbTransactionId) throws Exception {
+    final ProcessorOutputDTO outputDTO = outputWithAdditionalData();
+    outputDTO.setFirstPaymentReferenceId("8815329842815468");
+    adyenDao.addResponse(
+        kbAccountId,
+        kbPaymentId,
+        kbTransactionId,
+        kbPaymentMethodId,
+        TransactionType.PURCHASE,
+        AMOUNT,
+        Currency.USD,
+        PaymentPluginStatus.PENDING,
+        null,
+        outputDTO,
+        context.getTenantId());
+  }
+
+  private static ProcessorOutputDTO outputWithAdditionalData() {
+    final ProcessorOutputDTO outputDTO = new ProcessorOutputDTO();
+    outputDTO.setAdditionalData(
+        ImmutableMap.of(
+            "authCode", "065696",
+            "cardSummary", "1111",
+            "paymentMethod", "visa",
+            "recurring.recurringDetailReference", "8415698462516992"));
+    return outputDTO;
+  }
+
+  private static String buildSignedNotification(
+      final String merchantReference, final String pspReference) throws Exception {
+    final String item =
+        "\"amount\":{\"currency\":\"USD\",\"value\":1000},"
+            + "\"eventCode\":\"AUTHORISATION\","
+            + "\"eventDate\":\"2021-01-01T01:00:00+01:00\","
+            + "\"merchantAccountCode\":\"test\","
+            + "\"merchantReference\":\""
+            + merchantReference
+            + "\",\"pspReference\":\""
+            + pspReference
+            + "\","
+            + "\"reason\":\"065696:1111:03/2030\","
+            + "\"success\":\"true\"";
+    final NotificationRequestItem unsigned =
+        new NotificationHandler()
+            .handleNotificationJson(
+                "{\"live\":\"false\",\"notificationItems\":[{\"NotificationRequestItem\":{"
+                    + item
+                    + "}}]}")
+            .getNotificationItems()
+            .get(0);
+    final String signature = new HMACValidator().calculateHMAC(unsigned, HMAC_KEY);
+    return "{\"live\":\"false\",\"notificationItems\":[{\"NotificationRequestItem\":{"
+        + "\"additionalData\":{\"hmacSignature\":\""
+        + signature
+        + "\"},"
+        + item
+        + "}}]}";
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal local stand-in for the Adyen Checkout API, answers every call with a canned success so
+ * that benchmarks measure the plugin and not the network to Adyen.
+ */
+public class StubAdyenServer implements AutoCloseable {
+
+  private static final byte[] PAYMENT_RESPONSE =
+      ("{\"pspReference\":\"8815329842815468\",\"resultCode\":\"Authorised\","
+              + "\"additionalData\":{\"recurring.recurringDetailReference\":\"8415698462516992\"}}")
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] REFUND_RESPONSE =
+      ("{\"merchantAccount\":\"test\",\"paymentPspReference\":\"8815329842815468\","
+              + "\"pspReference\":\"8825329842815469\",\"status\":\"received\"}")
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] REVERSAL_RESPONSE =
+      ("{\"merchantAccount\":\"test\",\"paymentPspReference\":\"8815329842815468\","
+              + "\"pspReference\":\"8835329842815470\",\"status\":\"received\"}")
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SESSION_RESPONSE =
+      ("{\"id\":\"CS1234567890ABCDEF\",\"sessionData\":\"Ab02b4c0!BQABAgA\","
+              + "\"merchantAccount\":\"test\",\"returnUrl\":\"test\"}")
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+
+  public StubAdyenServer() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.executor =
+        Executors.newFixedThreadPool(
+            8,
+            new ThreadFactoryBuilder()
+                .setNameFormat("stub-adyen-%d")
+                .setDaemon(true)
+                .build());
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /** Value for the checkoutEndpoint plugin property. */
+  public String getCheckoutEndpoint() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+  }
+
+  /** Idempotency-Key header of every request received, null when absent. */
+  public List<String> getIdempotencyKeys() {
+    return idempotencyKeys;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    idempotencyKeys.add(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+    try (InputStream in = exchange.getRequestBody()) {
+      // Drain the request so that the connection can be kept alive
+      final byte[] buffer = new byte[4096];
+      while (in.read(buffer) != -1) {}
+    }
+    final String path = exchange.getRequestURI().getPath();
+    final byte[] body;
+    if (path.endsWith("/refunds")) {
+      body = REFUND_RESPONSE;
+    } else if (path.endsWith("/reversals")) {
+      body = REVERSAL_RESPONSE;
+    } else if (path.endsWith("/sessions")) {
+      body = SESSION_RESPONSE;
+    } else {
+      body = PAYMENT_RESPONSE;
+    }
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(path.endsWith("/payments") ? 200 : 201, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
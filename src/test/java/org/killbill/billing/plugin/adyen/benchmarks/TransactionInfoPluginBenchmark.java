@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.plugin.adyen.api.AdyenPaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.adyen.dao.gen.tables.records.AdyenResponsesRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping of an adyen_responses row to the transaction info returned to Kill Bill, dominated by
+ * the parsing of the additional data. Run with {@code -prof gc} to see the allocation rate per
+ * call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionInfoPluginBenchmark {
+
+  private AdyenResponsesRecord record;
+
+  @Setup
+  public void setUp() {
+    record = new AdyenResponsesRecord();
+    record.setKbAccountId(UUID.randomUUID().toString());
+    record.setKbPaymentId(UUID.randomUUID().toString());
+    record.setKbPaymentTransactionId(UUID.randomUUID().toString());
+    record.setKbTenantId(UUID.randomUUID().toString());
+    record.setTransactionType(TransactionType.PURCHASE.name());
+    record.setTransactionStatus(PaymentPluginStatus.PROCESSED.name());
+    record.setAmount(new BigDecimal("10.00"));
+    record.setCurrency("USD");
+    record.setPspReference("8815329842815468");
+    record.setCreatedDate(LocalDateTime.now());
+    record.setAdditionalData(
+        "{\"authCode\":\"065696\",\"avsResult\":\"4 AVS not supported for this card type\","
+            + "\"cardBin\":\"411111\",\"cardHolderName\":\"John Smith\","
+            + "\"cardSummary\":\"1111\",\"expiryDate\":\"03/2030\","
+            + "\"fundingSource\":\"CREDIT\",\"issuerCountry\":\"US\","
+            + "\"paymentMethod\":\"visa\","
+            + "\"recurring.recurringDetailReference\":\"8415698462516992\","
+            + "\"recurringProcessingModel\":\"CardOnFile\","
+            + "\"shopperReference\":\"4c3f4a9e8d0b4e6f9a1b2c3d4e5f6a7b\"}");
+  }
+
+  @Benchmark
+  public AdyenPaymentTransactionInfoPlugin build() {
+    return AdyenPaymentTransactionInfoPlugin.build(record);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.plugin.adyen.api.ProcessorInputDTO;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.killbill.billing.plugin.adyen.benchmarks.StubAdyenServer;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+
+public class AdyenProcessorIdempotencyTest {
+
+  @Test
+  public void testReplayedTransactionIsNotSentTwice() throws Exception {
+    try (StubAdyenServer stubAdyenServer = new StubAdyenServer()) {
+      final Properties properties = new Properties();
+      properties.setProperty("org.killbill.billing.plugin.adyen.apiKey", "test_key");
+      properties.setProperty("org.killbill.billing.plugin.adyen.merchantAccount", "test");
+      properties.setProperty(
+          "org.killbill.billing.plugin.adyen.checkoutEndpoint",
+          stubAdyenServer.getCheckoutEndpoint());
+      final GatewayProcessor processor =
+          GatewayProcessorFactory.get(new AdyenConfigProperties(properties, "US"));
+      try {
+        final String kbTransactionId = UUID.randomUUID().toString();
+        final ProcessorOutputDTO first = processor.refundPayment(refund(kbTransactionId));
+        final ProcessorOutputDTO replayed = processor.refundPayment(refund(kbTransactionId));
+        Assert.assertEquals("8825329842815469", first.getFirstPaymentReferenceId());
+        Assert.assertFalse(first.isReplayed());
+        Assert.assertTrue(replayed.isReplayed());
+        Assert.assertEquals(
+            first.getFirstPaymentReferenceId(), replayed.getFirstPaymentReferenceId());
+        Assert.assertEquals(1, stubAdyenServer.getIdempotencyKeys().size());
+        Assert.assertEquals(
+            "refunds-" + kbTransactionId, stubAdyenServer.getIdempotencyKeys().get(0));
+
+        processor.refundPayment(refund(UUID.randomUUID().toString()));
+        Assert.assertEquals(2, stubAdyenServer.getIdempotencyKeys().size());
+      } finally {
+        processor.close();
+      }
+    }
+  }
+
+  private static ProcessorInputDTO refund(final String kbTransactionId) {
+    final ProcessorInputDTO input = new ProcessorInputDTO();
+    input.setCurrency(Currency.USD);
+    input.setAmount(new BigDecimal("10.00"));
+    input.setKbTransactionId(kbTransactionId);
+    input.setPspReference("8815329842815468");
+    return input;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.plugin.adyen.api.ProcessorInputDTO;
+import org.killbill.billing.plugin.adyen.api.ProcessorOutputDTO;
+import org.mockito.Mockito;
+
+public class DrainingGatewayProcessorTest {
+
+  @Test
+  public void testRetiredProcessorIsClosedOnceItsCallsComplete() {
+    final GatewayProcessor delegate = Mockito.mock(GatewayProcessor.class);
+    final CompletableFuture<ProcessorOutputDTO> inFlight = new CompletableFuture<>();
+    Mockito.when(delegate.refundPaymentAsync(Mockito.any(ProcessorInputDTO.class)))
+        .thenReturn(inFlight);
+    final DrainingGatewayProcessor processor = new DrainingGatewayProcessor(delegate, () -> null);
+
+    final CompletableFuture<ProcessorOutputDTO> output =
+        processor.refundPaymentAsync(new ProcessorInputDTO());
+    processor.retire();
+    Mockito.verify(delegate, Mockito.never()).close();
+
+    inFlight.complete(new ProcessorOutputDTO());
+    Assert.assertTrue(output.isDone());
+    Mockito.verify(delegate).close();
+  }
+
+  @Test
+  public void testCallAfterCloseGoesToTheSuccessor() {
+    final GatewayProcessor delegate = Mockito.mock(GatewayProcessor.class);
+    final GatewayProcessor successor = Mockito.mock(GatewayProcessor.class);
+    final CompletableFuture<ProcessorOutputDTO> completed =
+        CompletableFuture.completedFuture(new ProcessorOutputDTO());
+    Mockito.when(successor.voidPaymentAsync(Mockito.any(ProcessorInputDTO.class)))
+        .thenReturn(completed);
+    final DrainingGatewayProcessor processor =
+        new DrainingGatewayProcessor(delegate, () -> successor);
+
+    // Nothing in flight, closed straight away
+    processor.retire();
+    Mockito.verify(delegate).close();
+
+    Assert.assertSame(completed, processor.voidPaymentAsync(new ProcessorInputDTO()));
+    Mockito.verify(delegate, Mockito.never()).voidPaymentAsync(Mockito.any());
+  }
+}
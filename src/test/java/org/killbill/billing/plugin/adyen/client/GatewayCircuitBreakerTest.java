@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GatewayCircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    final GatewayCircuitBreaker breaker = new GatewayCircuitBreaker("test", 3, 1000, clock::get);
+
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    // A success resets the count
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    breaker.onSuccess();
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(breaker.tryAcquirePermission());
+      breaker.onFailure();
+    }
+    Assert.assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertFalse(breaker.tryAcquirePermission());
+
+    final Map<String, Object> metrics = new HashMap<>();
+    breaker.addMetrics(metrics);
+    Assert.assertEquals("OPEN", metrics.get("circuitBreaker.test.state"));
+    Assert.assertEquals(1L, metrics.get("circuitBreaker.test.opened"));
+    Assert.assertEquals(1L, metrics.get("circuitBreaker.test.rejected"));
+  }
+
+  @Test
+  public void testHalfOpenLetsASingleProbeThrough() {
+    final GatewayCircuitBreaker breaker = new GatewayCircuitBreaker("test", 1, 1000, clock::get);
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    Assert.assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    Assert.assertEquals(GatewayCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assert.assertFalse(breaker.tryAcquirePermission());
+
+    // Failed probe, open for another period
+    breaker.onFailure();
+    Assert.assertEquals(GatewayCircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertFalse(breaker.tryAcquirePermission());
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    Assert.assertTrue(breaker.tryAcquirePermission());
+    breaker.onSuccess();
+    Assert.assertEquals(GatewayCircuitBreaker.State.CLOSED, breaker.getState());
+    Assert.assertTrue(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void testBulkheadRejectsCallsOverTheLimit() {
+    final GatewayBulkhead bulkhead = new GatewayBulkhead("test", 1);
+    Assert.assertTrue(bulkhead.tryAcquire());
+    Assert.assertFalse(bulkhead.tryAcquire());
+    bulkhead.release();
+    Assert.assertTrue(bulkhead.tryAcquire());
+    bulkhead.release();
+
+    final Map<String, Object> metrics = new HashMap<>();
+    bulkhead.addMetrics(metrics);
+    Assert.assertEquals(1L, metrics.get("bulkhead.test.rejected"));
+  }
+}
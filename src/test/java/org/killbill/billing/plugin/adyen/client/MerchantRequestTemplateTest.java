@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.PaymentsRequest;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.plugin.adyen.core.AdyenConfigProperties;
+
+public class MerchantRequestTemplateTest {
+
+  @Test
+  public void testRequestsArePrefilledAndIndependent() {
+    final Properties properties = new Properties();
+    properties.setProperty("org.killbill.billing.plugin.adyen.merchantAccount", "merchant");
+    properties.setProperty("org.killbill.billing.plugin.adyen.returnUrl", "https://return");
+    properties.setProperty("org.killbill.billing.plugin.adyen.captureDelayHours", "24");
+    final MerchantRequestTemplate template =
+        new MerchantRequestTemplate(new AdyenConfigProperties(properties, "US"));
+
+    final PaymentsRequest first = template.newPaymentsRequest();
+    Assert.assertEquals("merchant", first.getMerchantAccount());
+    Assert.assertEquals("https://return", first.getReturnUrl());
+    Assert.assertEquals(Integer.valueOf(24), first.getCaptureDelayHours());
+    first.setReference("first");
+    Assert.assertNull(template.newPaymentsRequest().getReference());
+
+    final CreateCheckoutSessionRequest session = template.newCheckoutSessionRequest(true);
+    Assert.assertEquals("US", session.getCountryCode());
+    Assert.assertEquals(CreateCheckoutSessionRequest.ChannelEnum.WEB, session.getChannel());
+    Assert.assertEquals(Boolean.TRUE, session.getStorePaymentMethod());
+    Assert.assertNull(template.newCheckoutSessionRequest(false).getRecurringProcessingModel());
+
+    Assert.assertEquals("merchant", template.newRefundRequest().getMerchantAccount());
+    Assert.assertEquals("merchant", template.newReversalRequest().getMerchantAccount());
+  }
+}
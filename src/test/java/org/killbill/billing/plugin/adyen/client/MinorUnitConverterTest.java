@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.client;
+
+import java.math.BigDecimal;
+import org.junit.Assert;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+
+public class MinorUnitConverterTest {
+
+  @Test
+  public void testExponentsFollowIso4217() {
+    Assert.assertEquals(0, MinorUnitConverter.getExponent(Currency.JPY));
+    Assert.assertEquals(2, MinorUnitConverter.getExponent(Currency.USD));
+    Assert.assertEquals(3, MinorUnitConverter.getExponent(Currency.KWD));
+    for (final Currency currency : Currency.values()) {
+      int expected;
+      try {
+        expected =
+            Math.max(java.util.Currency.getInstance(currency.name()).getDefaultFractionDigits(), 0);
+      } catch (final IllegalArgumentException e) {
+        expected = MinorUnitConverter.DEFAULT_EXPONENT;
+      }
+      Assert.assertEquals(currency.name(), expected, MinorUnitConverter.getExponent(currency));
+    }
+  }
+
+  @Test
+  public void testEveryCurrencyAndScale() {
+    for (final Currency currency : Currency.values()) {
+      final int exponent = MinorUnitConverter.getExponent(currency);
+      for (final long minorUnits : new long[] {0, 1, 7, 99, 100, 123456789, -250}) {
+        final BigDecimal amount = BigDecimal.valueOf(minorUnits, exponent);
+        // Same value whatever the scale the amount comes with
+        for (int extraScale = -2; extraScale <= 4; extraScale++) {
+          if (extraScale < 0 && minorUnits % BigDecimal.TEN.pow(-extraScale).longValue() != 0) {
+            // Cannot be represented with that scale
+            continue;
+          }
+          final BigDecimal rescaled = amount.setScale(exponent + extraScale);
+          Assert.assertEquals(
+              currency + " " + rescaled,
+              minorUnits,
+              MinorUnitConverter.toMinorUnits(rescaled, currency));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAmountsWithoutTheCurrencyScale() {
+    // The string based conversion turned these into 10, 105 and 10000
+    Assert.assertEquals(1000, MinorUnitConverter.toMinorUnits(new BigDecimal("10"), Currency.USD));
+    Assert.assertEquals(
+        1050, MinorUnitConverter.toMinorUnits(new BigDecimal("10.5"), Currency.USD));
+    Assert.assertEquals(
+        1000, MinorUnitConverter.toMinorUnits(new BigDecimal("1E+1"), Currency.USD));
+    Assert.assertEquals(
+        1000, MinorUnitConverter.toMinorUnits(new BigDecimal("1000.00"), Currency.JPY));
+    Assert.assertEquals(
+        1234, MinorUnitConverter.toMinorUnits(new BigDecimal("1.234"), Currency.KWD));
+    Assert.assertEquals(
+        1200, MinorUnitConverter.toMinorUnits(new BigDecimal("1.2"), Currency.KWD));
+  }
+
+  @Test
+  public void testExtraDecimalsAreRoundedHalfUp() {
+    Assert.assertEquals(
+        1001, MinorUnitConverter.toMinorUnits(new BigDecimal("10.005"), Currency.USD));
+    Assert.assertEquals(
+        1000, MinorUnitConverter.toMinorUnits(new BigDecimal("10.0049"), Currency.USD));
+    Assert.assertEquals(1, MinorUnitConverter.toMinorUnits(new BigDecimal("0.5"), Currency.JPY));
+    Assert.assertEquals(
+        -1001, MinorUnitConverter.toMinorUnits(new BigDecimal("-10.005"), Currency.USD));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testOverflow() {
+    MinorUnitConverter.toMinorUnits(new BigDecimal(Long.MAX_VALUE), Currency.USD);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.adyen.enums.Environment;
+import com.google.common.collect.ImmutableMap;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdyenConfigPropertiesTest {
+
+  @Test
+  public void testPropertiesTakePrecedenceOverEnvironment() {
+    final Properties properties = new Properties();
+    properties.setProperty("org.killbill.billing.plugin.adyen.apiKey", "fromProperties");
+    properties.setProperty("org.killbill.billing.plugin.adyen.captureDelayHours", "12");
+    properties.setProperty("org.killbill.billing.plugin.adyen.enviroment", "live");
+
+    final AdyenConfigProperties config =
+        new AdyenConfigProperties(
+            properties,
+            "US",
+            ImmutableMap.of(
+                AdyenConfigProperties.ADYEN_API_KEY, "fromEnv",
+                AdyenConfigProperties.ADYEN_MERCHANT_ACCOUNT, "merchantFromEnv"));
+
+    Assert.assertEquals("fromProperties", config.getApiKey());
+    Assert.assertEquals("merchantFromEnv", config.getMerchantAccount());
+    Assert.assertNull(config.getReturnUrl());
+    Assert.assertEquals(Integer.valueOf(12), config.getCaptureDelayHoursValue());
+    Assert.assertEquals(Environment.LIVE, config.getEnvironment());
+  }
+
+  @Test
+  public void testDefaultsAndInvalidValues() {
+    final Properties properties = new Properties();
+    properties.setProperty("org.killbill.billing.plugin.adyen.captureDelayHours", "soon");
+
+    final AdyenConfigProperties config =
+        new AdyenConfigProperties(properties, "US", ImmutableMap.of());
+
+    Assert.assertEquals("TEST", config.getEnviroment());
+    Assert.assertEquals(Environment.TEST, config.getEnvironment());
+    Assert.assertNull(config.getCaptureDelayHoursValue());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdyenExecutorsTest {
+
+  @Test
+  public void testPlatformThreads() throws Exception {
+    final ExecutorService executor = AdyenExecutors.newExecutor("test-platform", 2, false);
+    try {
+      final Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+      Assert.assertTrue(thread.getName().startsWith("test-platform-"));
+      Assert.assertTrue(thread.isDaemon());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testVirtualThreadsFallBackToPlatformThreads() throws Exception {
+    final ExecutorService executor = AdyenExecutors.newExecutor("test-virtual", 2, true);
+    try {
+      final Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+      Assert.assertTrue(thread.getName().startsWith("test-virtual-"));
+      // Virtual threads are always daemon threads as well
+      Assert.assertTrue(thread.isDaemon());
+      Assert.assertEquals(
+          AdyenExecutors.isVirtualThreadSupported(),
+          (Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+    } catch (final NoSuchMethodException e) {
+      Assert.assertFalse(AdyenExecutors.isVirtualThreadSupported());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
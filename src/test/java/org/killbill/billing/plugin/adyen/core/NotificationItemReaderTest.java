@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.notification.NotificationHandler;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NotificationItemReaderTest {
+
+  private static final String BATCH =
+      "{\"live\":\"false\",\"notificationItems\":["
+          + "{\"NotificationRequestItem\":{"
+          + "\"additionalData\":{\"hmacSignature\":\"c2lnbmF0dXJl\","
+          + "\"recurring.recurringDetailReference\":\"8415\"},"
+          + "\"amount\":{\"currency\":\"EUR\",\"value\":1000},"
+          + "\"eventCode\":\"AUTHORISATION\",\"eventDate\":\"2021-01-01T01:00:00+01:00\","
+          + "\"merchantAccountCode\":\"test\",\"merchantReference\":\"ref-1\","
+          + "\"operations\":[\"CANCEL\",\"CAPTURE\",\"REFUND\"],"
+          + "\"paymentMethod\":\"visa\",\"pspReference\":\"8815329842815468\","
+          + "\"reason\":\"065696:1111:03/2030\",\"success\":\"true\","
+          + "\"unknownField\":{\"nested\":[1,{\"a\":null}]}}},"
+          + "{\"NotificationRequestItem\":{"
+          + "\"amount\":{\"currency\":\"JPY\",\"value\":0},"
+          + "\"eventCode\":\"REFUND\",\"eventDate\":\"2021-01-02T00:00:00Z\","
+          + "\"merchantAccountCode\":\"test\",\"merchantReference\":\"ref-2\","
+          + "\"originalReference\":\"8815329842815468\","
+          + "\"pspReference\":\"8825329842815469\",\"success\":\"false\"}}"
+          + "]}";
+
+  @Test
+  public void testSameItemsAsTheAdyenLibrary() throws Exception {
+    final List<NotificationRequestItem> expected =
+        new NotificationHandler().handleNotificationJson(BATCH).getNotificationItems();
+    final List<NotificationRequestItem> items = new ArrayList<>();
+    Assert.assertEquals(2, NotificationItemReader.read(new StringReader(BATCH), items::add));
+
+    Assert.assertEquals(expected.size(), items.size());
+    for (int i = 0; i < items.size(); i++) {
+      final NotificationRequestItem item = items.get(i);
+      final NotificationRequestItem sdkItem = expected.get(i);
+      Assert.assertEquals(sdkItem.getAdditionalData(), item.getAdditionalData());
+      Assert.assertEquals(sdkItem.getAmount().getCurrency(), item.getAmount().getCurrency());
+      Assert.assertEquals(sdkItem.getAmount().getValue(), item.getAmount().getValue());
+      Assert.assertEquals(sdkItem.getEventCode(), item.getEventCode());
+      Assert.assertEquals(sdkItem.getMerchantAccountCode(), item.getMerchantAccountCode());
+      Assert.assertEquals(sdkItem.getMerchantReference(), item.getMerchantReference());
+      Assert.assertEquals(sdkItem.getOriginalReference(), item.getOriginalReference());
+      Assert.assertEquals(sdkItem.getOperations(), item.getOperations());
+      Assert.assertEquals(sdkItem.getPaymentMethod(), item.getPaymentMethod());
+      Assert.assertEquals(sdkItem.getPspReference(), item.getPspReference());
+      Assert.assertEquals(sdkItem.getReason(), item.getReason());
+      Assert.assertEquals(sdkItem.isSuccess(), item.isSuccess());
+    }
+    Assert.assertEquals(
+        DateTime.parse("2021-01-01T00:00:00Z").getMillis(), items.get(0).getEventDate().getTime());
+  }
+
+  @Test
+  public void testItemsAreEmittedBeforeTheEndOfTheBody() {
+    // Cut in the middle of the second item
+    final String truncated = BATCH.substring(0, BATCH.indexOf("\"ref-2\""));
+    final List<NotificationRequestItem> items = new ArrayList<>();
+    try {
+      NotificationItemReader.read(new StringReader(truncated), items::add);
+      Assert.fail("Truncated body should not be accepted");
+    } catch (final IOException expected) {
+      Assert.assertEquals(1, items.size());
+      Assert.assertEquals("ref-1", items.get(0).getMerchantReference());
+    }
+  }
+
+  @Test
+  public void testEmptyBatch() throws Exception {
+    final List<NotificationRequestItem> items = new ArrayList<>();
+    Assert.assertEquals(
+        0, NotificationItemReader.read(new StringReader("{\"live\":\"false\"}"), items::add));
+    Assert.assertEquals(
+        0,
+        NotificationItemReader.read(
+            new StringReader("{\"live\":\"false\",\"notificationItems\":[]}"), items::add));
+    Assert.assertTrue(items.isEmpty());
+  }
+}
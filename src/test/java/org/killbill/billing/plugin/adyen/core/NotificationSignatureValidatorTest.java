@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.adyen.core;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.notification.NotificationHandler;
+import com.adyen.util.HMACValidator;
+import java.util.HashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NotificationSignatureValidatorTest {
+
+  private static final String HMAC_KEY =
+      "44782DEF547AAA06C910C43932B1EB0C71FC68D9D0C057550C48EC2ACF6BA056";
+
+  @Test
+  public void testSameSignatureAsTheAdyenLibrary() throws Exception {
+    final NotificationSignatureValidator validator =
+        NotificationSignatureValidator.forHexKey(HMAC_KEY);
+    Assert.assertNotNull(validator);
+
+    final String[] items = {
+      // No original reference
+      "\"amount\":{\"currency\":\"USD\",\"value\":1000},\"eventCode\":\"AUTHORISATION\","
+          + "\"merchantAccountCode\":\"test\",\"merchantReference\":\"ref-1\","
+          + "\"pspReference\":\"8815329842815468\",\"success\":\"true\"",
+      "\"amount\":{\"currency\":\"EUR\",\"value\":0},\"eventCode\":\"REFUND\","
+          + "\"merchantAccountCode\":\"test\",\"merchantReference\":\"ref-2\","
+          + "\"originalReference\":\"8815329842815468\","
+          + "\"pspReference\":\"8825329842815469\",\"success\":\"false\"",
+      // Non ASCII reference and a value longer than the buffer
+      "\"amount\":{\"currency\":\"JPY\",\"value\":-9223372036854775807},"
+          + "\"eventCode\":\"CANCELLATION\",\"merchantAccountCode\":\"tést\","
+          + "\"merchantReference\":\""
+          + new String(new char[300]).replace('\0', 'x')
+          + "é\",\"pspReference\":\"8835329842815470\",\"success\":\"true\"",
+      // No amount, signed as empty value and currency like the Adyen library does
+      "\"eventCode\":\"REPORT_AVAILABLE\",\"merchantAccountCode\":\"test\","
+          + "\"merchantReference\":\"ref-4\",\"pspReference\":\"8845329842815471\","
+          + "\"success\":\"true\""
+    };
+    for (final String json : items) {
+      final NotificationRequestItem item = parse(json);
+      Assert.assertFalse(validator.isValid(item));
+
+      item.setAdditionalData(new HashMap<>());
+      item.getAdditionalData()
+          .put("hmacSignature", new HMACValidator().calculateHMAC(item, HMAC_KEY));
+      Assert.assertTrue(json, validator.isValid(item));
+      // Valid again, every validation starts from the keyed Mac
+      Assert.assertTrue(json, validator.isValid(item));
+
+      item.setMerchantReference(item.getMerchantReference() + "-tampered");
+      Assert.assertFalse(json, validator.isValid(item));
+    }
+  }
+
+  @Test
+  public void testMissingOrInvalidKey() {
+    Assert.assertNull(NotificationSignatureValidator.forHexKey(null));
+    Assert.assertNull(NotificationSignatureValidator.forHexKey(""));
+    Assert.assertNull(NotificationSignatureValidator.forHexKey("not hex"));
+    Assert.assertNull(NotificationSignatureValidator.forHexKey("ABC"));
+  }
+
+  private static NotificationRequestItem parse(final String item) throws Exception {
+    return new NotificationHandler()
+        .handleNotificationJson(
+            "{\"live\":\"false\",\"notificationItems\":[{\"NotificationRequestItem\":{"
+                + item
+                + "}}]}")
+        .getNotificationItems()
+        .get(0);
+  }
+}
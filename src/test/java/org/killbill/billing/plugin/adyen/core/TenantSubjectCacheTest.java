@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Wovenware, Inc
+ *
+ * Wovenware licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.plugin.adyen.core;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.security.api.SecurityApi;
+import org.mockito.Mockito;
+
+public class TenantSubjectCacheTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private SecurityApi securityApi;
+  private TenantSubjectCache subjects;
+
+  @Before
+  public void setUp() throws Exception {
+    final Properties properties = TestUtils.loadProperties("adyen.properties");
+    properties.setProperty("org.killbill.billing.plugin.adyen.checkoutLoginTtlSeconds", "60");
+    final AdyenConfigProperties configuration = new AdyenConfigProperties(properties, "");
+
+    final SimpleAccountRealm realm = new SimpleAccountRealm();
+    realm.addAccount(configuration.getUsername(), configuration.getPassword());
+    SecurityUtils.setSecurityManager(new DefaultSecurityManager(realm));
+    // Logs in the subject bound to the calling thread, as Kill Bill does
+    securityApi = Mockito.mock(SecurityApi.class);
+    Mockito.doAnswer(
+            invocation -> {
+              SecurityUtils.getSubject()
+                  .login(
+                      new UsernamePasswordToken(
+                          invocation.getArguments()[0].toString(),
+                          invocation.getArguments()[1].toString()));
+              return null;
+            })
+        .when(securityApi)
+        .login(Mockito.any(), Mockito.any());
+    final OSGIKillbillAPI killbillAPI = Mockito.mock(OSGIKillbillAPI.class);
+    Mockito.when(killbillAPI.getSecurityApi()).thenReturn(securityApi);
+
+    final AdyenConfigurationHandler handler =
+        new AdyenConfigurationHandler(null, AdyenActivator.PLUGIN_NAME, null);
+    handler.setDefaultConfigurable(configuration);
+    subjects = new TenantSubjectCache(killbillAPI, handler, nanos::get);
+  }
+
+  @After
+  public void tearDown() {
+    subjects.close();
+    ThreadContext.remove();
+    SecurityUtils.setSecurityManager(null);
+  }
+
+  @Test
+  public void testLoginIsReusedUntilItExpires() throws Exception {
+    final UUID kbTenantId = UUID.randomUUID();
+    final String caller = Thread.currentThread().getName();
+    Assert.assertEquals(caller, subjects.call(kbTenantId, () -> Thread.currentThread().getName()));
+    final Subject first = subjects.call(kbTenantId, SecurityUtils::getSubject);
+    Assert.assertTrue(first.isAuthenticated());
+    Assert.assertEquals("test", first.getPrincipal());
+    // The request thread itself is not logged in
+    Assert.assertFalse(SecurityUtils.getSubject().isAuthenticated());
+    Mockito.verify(securityApi, Mockito.times(1)).login(Mockito.any(), Mockito.any());
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    final Subject second = subjects.call(kbTenantId, SecurityUtils::getSubject);
+    Assert.assertNotSame(first, second);
+    Mockito.verify(securityApi, Mockito.times(2)).login(Mockito.any(), Mockito.any());
+    // Calls which picked up the first subject may still be running
+    Assert.assertTrue(first.isAuthenticated());
+
+    // Session expired on the Kill Bill side
+    second.logout();
+    final Subject third = subjects.call(kbTenantId, SecurityUtils::getSubject);
+    Assert.assertTrue(third.isAuthenticated());
+    Mockito.verify(securityApi, Mockito.times(3)).login(Mockito.any(), Mockito.any());
+    Assert.assertFalse(first.isAuthenticated());
+
+    subjects.close();
+    Assert.assertFalse(third.isAuthenticated());
+  }
+
+  @Test
+  public void testTaskExceptionIsRethrownAndLoginKept() throws Exception {
+    final UUID kbTenantId = UUID.randomUUID();
+    try {
+      subjects.call(
+          kbTenantId,
+          () -> {
+            throw new IllegalStateException("boom");
+          });
+      Assert.fail("The exception of the task should be rethrown");
+    } catch (final IllegalStateException e) {
+      Assert.assertEquals("boom", e.getMessage());
+    }
+    Assert.assertTrue(subjects.call(kbTenantId, SecurityUtils::getSubject).isAuthenticated());
+    Mockito.verify(securityApi, Mockito.times(1)).login(Mockito.any(), Mockito.any());
+  }
+}